@@ -6,6 +6,7 @@ import hudson.Launcher;
 import hudson.Util;
 import hudson.model.AbstractBuild;
 import hudson.model.AbstractProject;
+import hudson.model.AutoCompletionCandidates;
 import hudson.model.BuildListener;
 import hudson.model.Describable;
 import hudson.model.Result;
@@ -16,11 +17,15 @@ import hudson.tasks.Recorder;
 import hudson.util.CopyOnWriteList;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
+import jenkins.plugins.jclouds.internal.Metrics;
+import jenkins.plugins.jclouds.internal.ProviderCatalog;
 import org.apache.commons.lang.StringUtils;
 import org.kohsuke.stapler.DataBoundConstructor;
+import org.kohsuke.stapler.QueryParameter;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 
+import org.jclouds.blobstore.BlobStoreContext;
 import org.jclouds.rest.AuthorizationException;
 
 import javax.servlet.ServletException;
@@ -152,7 +157,10 @@ public class BlobStorePublisher extends Recorder implements Describable<Publishe
                 for (FilePath src : paths) {
                     String expandedPath = getDestinationPath(blobStoreEntry.path, blobStoreEntry.keepHierarchy, wsPath, src, envVars);
                     log(listener.getLogger(), "container=" + expandedContainer + ", path=" + expandedPath + ", file=" + src.getName());
+                    long length = src.length();
                     blobStoreProfile.upload(expandedContainer, expandedPath, src);
+                    Metrics.BLOBSTORE_UPLOADS.inc(blobStoreProfile.getProfileName());
+                    Metrics.BLOBSTORE_UPLOAD_BYTES.add(length, blobStoreProfile.getProfileName());
                 }
             }
         } catch (AuthorizationException e) {
@@ -260,6 +268,14 @@ public class BlobStorePublisher extends Recorder implements Describable<Publishe
             return true;
         }
 
+        public AutoCompletionCandidates doAutoCompleteProviderName(@QueryParameter final String value) {
+            AutoCompletionCandidates candidates = new AutoCompletionCandidates();
+            for (String matchedProvider : ProviderCatalog.of(BlobStoreContext.class).withPrefix(value.toLowerCase())) {
+                candidates.add(matchedProvider);
+            }
+            return candidates;
+        }
+
         public ListBoxModel doFillProfileNameItems() {
             ListBoxModel model = new ListBoxModel();
             for (BlobStoreProfile profile : getProfiles()) {
@@ -34,6 +34,7 @@ import shaded.com.google.common.cache.LoadingCache;
 import shaded.com.google.common.collect.ImmutableList;
 import shaded.com.google.common.collect.ImmutableList.Builder;
 import shaded.com.google.common.collect.Iterables;
+import shaded.com.google.common.util.concurrent.ListeningExecutorService;
 import shaded.com.google.common.util.concurrent.MoreExecutors;
 
 public class JCloudsBuildWrapper extends BuildWrapper {
@@ -89,7 +90,13 @@ public class JCloudsBuildWrapper extends BuildWrapper {
         final TerminateNodes terminateNodes = new TerminateNodes(logger, computeCache);
 
         ProvisionPlannedInstancesAndDestroyAllOnError provisioner = new ProvisionPlannedInstancesAndDestroyAllOnError(
-                MoreExecutors.listeningDecorator(Computer.threadPoolForRemoting), logger, terminateNodes);
+                new Function<String, ListeningExecutorService>() {
+                    public ListeningExecutorService apply(String cloudName) {
+                        // the cloud may have been removed or renamed since the job was configured
+                        JCloudsCloud cloud = JCloudsCloud.getByName(cloudName);
+                        return MoreExecutors.listeningDecorator(cloud != null ? cloud.getExecutor() : Computer.threadPoolForRemoting);
+                    }
+                }, logger, terminateNodes);
 
         final Iterable<RunningNode> runningNode = provisioner.apply(nodePlans);
 
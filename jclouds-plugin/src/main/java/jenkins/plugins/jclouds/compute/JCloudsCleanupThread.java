@@ -2,8 +2,14 @@ package jenkins.plugins.jclouds.compute;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.Callable;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 
 import org.apache.commons.io.FileUtils;
@@ -19,6 +25,7 @@ import hudson.model.AsyncPeriodicWork;
 import hudson.model.Computer;
 import hudson.model.TaskListener;
 import jenkins.model.Jenkins;
+import jenkins.plugins.jclouds.internal.Metrics;
 
 @Extension
 public final class JCloudsCleanupThread extends AsyncPeriodicWork {
@@ -43,41 +50,57 @@ public final class JCloudsCleanupThread extends AsyncPeriodicWork {
     @Override
     protected void execute(TaskListener listener) {
         final ImmutableList.Builder<ListenableFuture<?>> deletedNodesBuilder = ImmutableList.<ListenableFuture<?>>builder();
-        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Computer.threadPoolForRemoting);
         final ImmutableList.Builder<JCloudsComputer> computersToDeleteBuilder = ImmutableList.<JCloudsComputer>builder();
+        final Map<List<String>, Long> nodes = new HashMap<List<String>, Long>();
+        final Map<List<String>, Long> pendingDeletes = new HashMap<List<String>, Long>();
 
         for (final Computer c : Jenkins.getInstance().getComputers()) {
             if (JCloudsComputer.class.isInstance(c)) {
                 final JCloudsComputer comp = (JCloudsComputer) c;
                 final JCloudsSlave jCloudsSlave = comp.getNode();
                 if (jCloudsSlave != null) {
+                    final String cloudName = jCloudsSlave.getCloudName();
+                    increment(nodes, Arrays.asList(cloudName, String.valueOf(jCloudsSlave.getTemplateName())));
                     // Ensure the node is still there
                     if (jCloudsSlave.isPendingDelete()) {
-                        computersToDeleteBuilder.add(comp);
-                        ListenableFuture<?> f = executor.submit(new Callable<String>() {
-                            public String call() {
-                                logger.log(Level.INFO, "Deleting pending node " + jCloudsSlave.getNodeName());
-                                try {
-                                    String nodeName = jCloudsSlave.getNodeName();
-                                    jCloudsSlave.terminate();
-                                    return nodeName;
-                                } catch (IOException e) {
-                                    logger.log(Level.WARNING, "Failed to disconnect and delete " + c.getName() + ": " + e.getMessage());
-                                } catch (InterruptedException e) {
-                                    logger.log(Level.WARNING, "Failed to disconnect and delete " + c.getName() + ": " + e.getMessage());
+                        increment(pendingDeletes, Collections.singletonList(cloudName));
+                        ListenableFuture<?> f;
+                        try {
+                            f = executorOf(jCloudsSlave).submit(new Callable<String>() {
+                                public String call() {
+                                    logger.log(Level.INFO, "Deleting pending node " + jCloudsSlave.getNodeName());
+                                    try {
+                                        String nodeName = jCloudsSlave.getNodeName();
+                                        jCloudsSlave.terminate();
+                                        return nodeName;
+                                    } catch (IOException e) {
+                                        logger.log(Level.WARNING, "Failed to disconnect and delete " + c.getName() + ": " + e.getMessage());
+                                    } catch (InterruptedException e) {
+                                        logger.log(Level.WARNING, "Failed to disconnect and delete " + c.getName() + ": " + e.getMessage());
+                                    }
+                                    return null;
                                 }
-                                return null;
-                            }
-                        });
+                            });
+                        } catch (RejectedExecutionException e) {
+                            // still pending delete, the next run tries again
+                            logger.log(Level.WARNING, e.getMessage() + ", not deleting " + jCloudsSlave.getNodeName() + " this time");
+                            continue;
+                        }
+                        computersToDeleteBuilder.add(comp);
                         Futures.addCallback(f, new FutureCallback<Object>() {
                             @Override
                             public void onSuccess(Object nodeName) {
+                                if (nodeName != null) {
+                                    Metrics.NODES_DELETED.inc(cloudName);
+                                } else {
+                                    Metrics.DELETE_FAILURES.inc(cloudName);
+                                }
                                 deleteSlaveLog((String) nodeName);
                             }
 
                             @Override
                             public void onFailure(Throwable throwable) {
-
+                                Metrics.DELETE_FAILURES.inc(cloudName);
                             }
                         });
                         deletedNodesBuilder.add(f);
@@ -97,6 +120,9 @@ public final class JCloudsCleanupThread extends AsyncPeriodicWork {
             }
         }
 
+        Metrics.NODES.setAll(nodes);
+        Metrics.PENDING_DELETES.setAll(pendingDeletes);
+
         Futures.getUnchecked(Futures.successfulAsList(deletedNodesBuilder.build()));
 
         for (JCloudsComputer c : computersToDeleteBuilder.build()) {
@@ -111,6 +137,19 @@ public final class JCloudsCleanupThread extends AsyncPeriodicWork {
         }
     }
 
+    private static void increment(Map<List<String>, Long> counts, List<String> key) {
+        Long count = counts.get(key);
+        counts.put(key, count == null ? 1 : count + 1);
+    }
+
+    /**
+     * The executor of the slave's cloud, so that a slow cloud only delays its own deletes.
+     */
+    private static ListeningExecutorService executorOf(JCloudsSlave slave) {
+        JCloudsCloud cloud = JCloudsCloud.getByName(slave.getCloudName());
+        return MoreExecutors.listeningDecorator(cloud != null ? cloud.getExecutor() : Computer.threadPoolForRemoting);
+    }
+
     /**
      * Delete the slave log, especially when slave terminated.
      * For saving disk space.
@@ -1,21 +1,27 @@
 package jenkins.plugins.jclouds.compute;
 
 import java.io.BufferedReader;
+import java.io.File;
 import java.io.IOException;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.concurrent.Callable;
-import java.util.concurrent.ExecutionException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import javax.annotation.Nullable;
 import javax.servlet.ServletException;
 
 import org.jclouds.Constants;
@@ -33,7 +39,6 @@ import org.jclouds.openstack.nova.v2_0.NovaApi;
 import org.jclouds.openstack.nova.v2_0.domain.Flavor;
 import org.jclouds.openstack.nova.v2_0.domain.Quota;
 import org.jclouds.openstack.nova.v2_0.features.FlavorApi;
-import org.jclouds.providers.Providers;
 import org.jclouds.ssh.SshKeys;
 import org.jclouds.sshj.config.SshjSshClientModule;
 import org.kohsuke.stapler.DataBoundConstructor;
@@ -45,12 +50,14 @@ import com.google.inject.Module;
 
 import hudson.Extension;
 import hudson.Util;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
 import hudson.model.AutoCompletionCandidates;
-import hudson.model.Computer;
 import hudson.model.Descriptor;
 import hudson.model.Hudson;
 import hudson.model.Label;
 import hudson.model.Node;
+import hudson.model.labels.LabelAtom;
 import hudson.slaves.Cloud;
 import hudson.slaves.NodeProvisioner;
 import hudson.slaves.NodeProvisioner.PlannedNode;
@@ -59,15 +66,37 @@ import hudson.util.ListBoxModel;
 import hudson.util.Secret;
 import hudson.util.StreamTaskListener;
 import jenkins.model.Jenkins;
+import jenkins.plugins.jclouds.compute.internal.ApiOperation;
+import jenkins.plugins.jclouds.compute.internal.BulkheadExecutor;
+import jenkins.plugins.jclouds.compute.internal.CircuitBreaker;
+import jenkins.plugins.jclouds.compute.internal.ComputeContextPool;
+import jenkins.plugins.jclouds.compute.internal.DemandPredictor;
+import jenkins.plugins.jclouds.compute.internal.ImageCatalog;
+import jenkins.plugins.jclouds.compute.internal.LabelIndex;
+import jenkins.plugins.jclouds.compute.internal.LatencyEwma;
+import jenkins.plugins.jclouds.compute.internal.MetadataHydrator;
+import jenkins.plugins.jclouds.compute.internal.NodeInventory;
+import jenkins.plugins.jclouds.compute.internal.PhaseTimings;
+import jenkins.plugins.jclouds.compute.internal.ProvisioningPhase;
+import jenkins.plugins.jclouds.compute.internal.ProvisioningTimeline;
+import jenkins.plugins.jclouds.compute.internal.QuotaCache;
+import jenkins.plugins.jclouds.compute.internal.QuotaLedger;
+import jenkins.plugins.jclouds.compute.internal.RateLimiter;
+import jenkins.plugins.jclouds.internal.Metrics;
+import jenkins.plugins.jclouds.internal.ProviderCatalog;
+import shaded.com.google.common.base.Function;
 import shaded.com.google.common.base.Objects;
 import shaded.com.google.common.base.Predicate;
 import shaded.com.google.common.base.Strings;
+import shaded.com.google.common.base.Supplier;
+import shaded.com.google.common.collect.ImmutableList;
 import shaded.com.google.common.collect.ImmutableMap;
 import shaded.com.google.common.collect.ImmutableSet;
-import shaded.com.google.common.collect.ImmutableSet.Builder;
-import shaded.com.google.common.collect.ImmutableSortedSet;
 import shaded.com.google.common.collect.Iterables;
 import shaded.com.google.common.io.Closeables;
+import shaded.com.google.common.util.concurrent.FutureCallback;
+import shaded.com.google.common.util.concurrent.Futures;
+import shaded.com.google.common.util.concurrent.SettableFuture;
 
 /**
  * The JClouds version of the Jenkins Cloud.
@@ -78,12 +107,17 @@ public class JCloudsCloud extends Cloud {
 
     static final Logger LOGGER = Logger.getLogger(JCloudsCloud.class.getName());
 
-    static final String VCPU_KEY = "vcpu";
-    static final String RAM_KEY = "ram";
-    static final String INSTANCE_KEY = "instance";
+    static final String VCPU_KEY = QuotaCache.VCPU_KEY;
+    static final String RAM_KEY = QuotaCache.RAM_KEY;
+    static final String INSTANCE_KEY = QuotaCache.INSTANCE_KEY;
     static final int DEFAULT_VCPU = 4;
     static final int DEFAULT_RAM = 8;
 
+    /**
+     * Create all nodes of a provisioning burst with one API call, for providers that accept multi-create.
+     */
+    static final boolean BATCH_PROVISIONING = Boolean.getBoolean("jclouds.plugin.batchProvisioning");
+
     public final String identity;
     public final Secret credential;
     public final String tenantId;
@@ -99,6 +133,20 @@ public class JCloudsCloud extends Cloud {
     public final int scriptTimeout;
     public final int startTimeout;
     private transient ComputeService compute;
+    // this cloud, until a configuration save replaces it; what outlives the save lists through it
+    private transient AtomicReference<JCloudsCloud> current;
+    private transient NodeInventory inventory;
+    private transient QuotaCache quotaCache;
+    private transient QuotaLedger quotaLedger;
+    private transient volatile DemandPredictor demandPredictor;
+    private transient LabelIndex<JCloudsSlaveTemplate> templateIndex;
+    private transient ImageCatalog imageCatalog;
+    private transient Map<ApiOperation, RateLimiter> rateLimiters;
+    private transient CircuitBreaker circuitBreaker;
+    private transient LatencyEwma provisioningLatency;
+    private transient BulkheadExecutor executor;
+    private transient volatile boolean provisioningPaused;
+    private transient MetadataHydrator hydrator;
     public final String zones;
 
     public static List<String> getCloudNames() {
@@ -141,9 +189,131 @@ public class JCloudsCloud extends Cloud {
     protected Object readResolve() {
         for (JCloudsSlaveTemplate template : templates)
             template.cloud = this;
+        JCloudsCloud previous = getPrevious();
+        if (previous != null) {
+            // saving the configuration replaces the cloud; its work in flight, breaker and rate limits carry on
+            provisioningLatency = previous.provisioningLatency;
+            executor = previous.executor;
+            circuitBreaker = previous.circuitBreaker;
+            rateLimiters = previous.rateLimiters;
+            // so do an operator's pause and drains
+            provisioningPaused = previous.provisioningPaused;
+            for (JCloudsSlaveTemplate template : templates) {
+                JCloudsSlaveTemplate replaced = previous.getTemplate(template.name);
+                if (replaced != null) {
+                    template.setDraining(replaced.isDraining());
+                }
+            }
+        } else {
+            provisioningLatency = new LatencyEwma();
+            executor = new BulkheadExecutor(name, Integer.getInteger("jclouds.plugin.provisioningThreads", 10),
+                    Integer.getInteger("jclouds.plugin.provisioningQueue", 100));
+            circuitBreaker = new CircuitBreaker(Integer.getInteger("jclouds.plugin.breakerFailures", 5),
+                    TimeUnit.SECONDS.toMillis(Integer.getInteger("jclouds.plugin.breakerOpenSec", 60)));
+            rateLimiters = new EnumMap<ApiOperation, RateLimiter>(ApiOperation.class);
+            for (ApiOperation operation : ApiOperation.values()) {
+                rateLimiters.put(operation, operation.newRateLimiter());
+            }
+        }
+        templateIndex = new LabelIndex<JCloudsSlaveTemplate>(templates, new Function<JCloudsSlaveTemplate, Set<LabelAtom>>() {
+            public Set<LabelAtom> apply(JCloudsSlaveTemplate template) {
+                return template.getLabelSet();
+            }
+        });
+        hydrator = new MetadataHydrator(name, new Supplier<Set<String>>() {
+            public Set<String> get() {
+                Set<String> ids = new HashSet<String>();
+                for (Node node : Jenkins.getInstance().getNodes()) {
+                    if (node instanceof JCloudsSlave && name.equals(((JCloudsSlave) node).getCloudName())) {
+                        ids.add(((JCloudsSlave) node).getNodeId());
+                    }
+                }
+                return ids;
+            }
+        }, new Function<Set<String>, Iterable<? extends NodeMetadata>>() {
+            public Iterable<? extends NodeMetadata> apply(final Set<String> ids) {
+                acquirePermits(ApiOperation.LIST, 1);
+                return getCompute().listNodesDetailsMatching(new Predicate<ComputeMetadata>() {
+                    public boolean apply(ComputeMetadata node) {
+                        return ids.contains(node.getId());
+                    }
+                });
+            }
+        });
+        if (previous != null && previous.current != null && isSameAccount(previous)) {
+            // nodes being created on the replaced cloud still count against the cap and the quota
+            current = previous.current;
+            inventory = previous.inventory;
+            quotaCache = previous.quotaCache;
+            quotaLedger = previous.quotaLedger;
+        } else {
+            current = new AtomicReference<JCloudsCloud>();
+            inventory = newInventory(current);
+            quotaCache = newQuotaCache(current);
+            quotaLedger = new QuotaLedger(quotaCache);
+        }
+        current.set(this);
+        imageCatalog = new ImageCatalog();
         return this;
     }
 
+    /**
+     * Whether the other cloud creates its nodes in the same tenant as this one.
+     */
+    private boolean isSameAccount(JCloudsCloud other) {
+        return Objects.equal(providerName, other.providerName) && Objects.equal(identity, other.identity)
+                && Objects.equal(credential, other.credential) && Objects.equal(endPointUrl, other.endPointUrl)
+                && Objects.equal(zones, other.zones) && Objects.equal(tenantId, other.tenantId);
+    }
+
+    /**
+     * The node snapshot of the cloud. Static, so that it holds on to the current cloud only and not to the one that
+     * created it.
+     */
+    private static NodeInventory newInventory(final AtomicReference<JCloudsCloud> current) {
+        return new NodeInventory(new Supplier<Set<? extends ComputeMetadata>>() {
+            public Set<? extends ComputeMetadata> get() {
+                JCloudsCloud cloud = current.get();
+                cloud.acquirePermits(ApiOperation.LIST, 1);
+                return cloud.getCompute().listNodes();
+            }
+        }, TimeUnit.SECONDS.toMillis(Integer.getInteger("jclouds.plugin.inventoryStalenessSec", 60)));
+    }
+
+    private static QuotaCache newQuotaCache(final AtomicReference<JCloudsCloud> current) {
+        return new QuotaCache(new Supplier<Map<String, Integer>>() {
+            public Map<String, Integer> get() {
+                JCloudsCloud cloud = current.get();
+                cloud.acquirePermits(ApiOperation.QUOTA, 1);
+                return cloud.getCompute().getQuotaByTenant(cloud.zones, cloud.tenantId);
+            }
+        }, new Supplier<Map<String, Integer>>() {
+            public Map<String, Integer> get() {
+                JCloudsCloud cloud = current.get();
+                cloud.acquirePermits(ApiOperation.QUOTA, 1);
+                return cloud.getCompute().getTotalUsageByTenant(cloud.zones, cloud.tenantId);
+            }
+        }, new Function<String, Map<String, Integer>>() {
+            public Map<String, Integer> apply(String flavorId) {
+                JCloudsCloud cloud = current.get();
+                cloud.acquirePermits(ApiOperation.QUOTA, 1);
+                return cloud.getCompute().getFlavorByFlavorId(cloud.zones, flavorId);
+            }
+        }, TimeUnit.SECONDS.toMillis(Integer.getInteger("jclouds.plugin.quotaCacheTtlSec", 300)));
+    }
+
+    /**
+     * The configured cloud this one replaces, if any.
+     */
+    private JCloudsCloud getPrevious() {
+        Jenkins jenkins = Jenkins.getInstance();
+        if (jenkins == null || name == null) {
+            return null;
+        }
+        Cloud cloud = jenkins.clouds.getByName(name);
+        return cloud instanceof JCloudsCloud && cloud != this && ((JCloudsCloud) cloud).executor != null ? (JCloudsCloud) cloud : null;
+    }
+
     /**
      * Get the retention time, defaulting to 30 minutes.
      */
@@ -158,22 +328,30 @@ public class JCloudsCloud extends Cloud {
         }
     }, new EnterpriseConfigurationModule());
 
-    static ComputeServiceContext ctx(String providerName, String identity, String credential, String endPointUrl, String zones) {
+    /**
+     * Leases the pooled context of the given account, close the lease once done with it.
+     */
+    static ComputeContextPool.Lease lease(String providerName, String identity, String credential, String endPointUrl, String zones) {
         Properties overrides = new Properties();
         if (!Strings.isNullOrEmpty(endPointUrl)) {
             overrides.setProperty(Constants.PROPERTY_ENDPOINT, endPointUrl);
         }
-        return ctx(providerName, identity, credential, overrides, zones);
+        return lease(null, providerName, identity, credential, overrides, zones);
     }
 
-    static ComputeServiceContext ctx(String providerName, String identity, String credential, Properties overrides, String zones) {
+    static ComputeContextPool.Lease lease(Object owner, final String providerName, final String identity, final String credential,
+            final Properties overrides, String zones) {
         if (!Strings.isNullOrEmpty(zones)) {
             overrides.setProperty(LocationConstants.PROPERTY_ZONES, zones);
         }
-        // correct the classloader so that extensions can be found
-        Thread.currentThread().setContextClassLoader(Apis.class.getClassLoader());
-        return ContextBuilder.newBuilder(providerName).credentials(identity, credential).overrides(overrides).modules(MODULES)
-                .buildView(ComputeServiceContext.class);
+        return ComputeContextPool.get().acquire(owner, providerName, identity, credential, overrides, new Supplier<ComputeServiceContext>() {
+            public ComputeServiceContext get() {
+                // correct the classloader so that extensions can be found
+                Thread.currentThread().setContextClassLoader(Apis.class.getClassLoader());
+                return ContextBuilder.newBuilder(providerName).credentials(identity, credential).overrides(overrides).modules(MODULES)
+                        .buildView(ComputeServiceContext.class);
+            }
+        });
     }
 
     public ComputeService getCompute() {
@@ -188,11 +366,165 @@ public class JCloudsCloud extends Cloud {
             if (startTimeout > 0) {
                 overrides.setProperty(ComputeServiceProperties.TIMEOUT_NODE_RUNNING, String.valueOf(startTimeout));
             }
-            this.compute = ctx(this.providerName, this.identity, Secret.toString(credential), overrides, this.zones).getComputeService();
+            // the lease is owned by this cloud and goes back to the pool once the cloud is replaced
+            this.compute = lease(this, this.providerName, this.identity, Secret.toString(credential), overrides, this.zones).getContext()
+                    .getComputeService();
         }
         return compute;
     }
 
+    /**
+     * Demand history of the templates of this cloud, loaded from disk on first use.
+     */
+    public DemandPredictor getDemandPredictor() {
+        if (demandPredictor == null) {
+            synchronized (this) {
+                if (demandPredictor == null) {
+                    DemandPredictor predictor = new DemandPredictor(new File(Jenkins.getInstance().getRootDir(),
+                            "jclouds/demand-" + Util.rawEncode(name) + ".dat"));
+                    try {
+                        predictor.load();
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Failed to load the demand history of cloud " + name, e);
+                    }
+                    demandPredictor = predictor;
+                }
+            }
+        }
+        return demandPredictor;
+    }
+
+    public ImageCatalog getImageCatalog() {
+        return imageCatalog;
+    }
+
+    /**
+     * Reloads the image catalog, if any template picks its image by name regex.
+     */
+    void refreshImageCatalog() {
+        List<String> regexes = new ArrayList<String>();
+        for (JCloudsSlaveTemplate template : templates) {
+            if (!Strings.isNullOrEmpty(template.imageId) || Strings.isNullOrEmpty(template.imageNameRegex)) {
+                continue;
+            }
+            regexes.add(template.imageNameRegex);
+        }
+        if (!regexes.isEmpty()) {
+            acquirePermits(ApiOperation.LIST, 1);
+            imageCatalog.refresh(getCompute().listImages(), regexes);
+        }
+    }
+
+    /**
+     * The rate limit of the given class of API calls, shared by all templates of this cloud.
+     */
+    public RateLimiter getRateLimiter(ApiOperation operation) {
+        return rateLimiters.get(operation);
+    }
+
+    /**
+     * Waits for the rate limit of the given class of API calls, for callers that can't throw
+     * {@link InterruptedException}.
+     *
+     * @throws CancellationException if interrupted while waiting; the interrupt is kept on the thread and the call
+     *                               must not be made.
+     */
+    void acquirePermits(ApiOperation operation, int permits) {
+        try {
+            getRateLimiter(operation).acquire(permits);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CancellationException("Interrupted while waiting to make " + operation + " calls on cloud " + name);
+        }
+    }
+
+    /**
+     * Opens after repeated create failures on this cloud, stopping provisioning of all its templates.
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * Whether an operator stopped this cloud from starting nodes, until resumed or the cloud is reconfigured.
+     */
+    public boolean isProvisioningPaused() {
+        return provisioningPaused;
+    }
+
+    public void setProvisioningPaused(boolean provisioningPaused) {
+        this.provisioningPaused = provisioningPaused;
+    }
+
+    /**
+     * Recent time from planning a node to its slave coming online.
+     */
+    public LatencyEwma getProvisioningLatency() {
+        return provisioningLatency;
+    }
+
+    /**
+     * Phase latencies of the templates of this cloud, shown on its status page.
+     */
+    public List<PhaseTimings> getPhaseTimings() {
+        return PhaseTimings.ofCloud(name);
+    }
+
+    public ProvisioningPhase[] getProvisioningPhases() {
+        return ProvisioningPhase.values();
+    }
+
+    /**
+     * Runs the provisioning and cleanup work of this cloud.
+     */
+    public BulkheadExecutor getExecutor() {
+        return executor;
+    }
+
+    QuotaLedger getQuotaLedger() {
+        return quotaLedger;
+    }
+
+    /**
+     * Shared snapshot of the nodes of this cloud, use it instead of listing nodes.
+     */
+    public NodeInventory getInventory() {
+        return inventory;
+    }
+
+    /**
+     * Loads the metadata of this cloud's slaves in bulk after a restart.
+     */
+    public MetadataHydrator getHydrator() {
+        return hydrator;
+    }
+
+    /**
+     * Hydrates the slave metadata of every cloud on its executor once the slaves are loaded, so that their launches
+     * find it ready or wait for the one listing instead of each calling the provider, and older slaves learn their
+     * hostname from it.
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void hydrateSlaves() {
+        for (Cloud c : Jenkins.getInstance().clouds) {
+            if (!(c instanceof JCloudsCloud)) {
+                continue;
+            }
+            final JCloudsCloud cloud = (JCloudsCloud) c;
+            try {
+                cloud.getExecutor().submit(new Runnable() {
+                    public void run() {
+                        cloud.getHydrator().hydrate();
+                        Metrics.HYDRATION_MILLIS.set(cloud.getHydrator().getHydrationMillis(), cloud.name);
+                        JCloudsComputer.learnHostnames(cloud.name);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                LOGGER.warning(e.getMessage() + ", the slaves of cloud " + cloud.name + " hydrate on first use");
+            }
+        }
+    }
+
     public List<JCloudsSlaveTemplate> getTemplates() {
         return Collections.unmodifiableList(templates);
     }
@@ -204,46 +536,207 @@ public class JCloudsCloud extends Cloud {
     public Collection<NodeProvisioner.PlannedNode> provision(Label label, int excessWorkload) {
         final JCloudsSlaveTemplate template = getTemplate(label);
         List<PlannedNode> plannedNodeList = new ArrayList<PlannedNode>();
+        if (template == null) {
+            LOGGER.info("No template of cloud " + getDisplayName() + " matches label " + label);
+            return plannedNodeList;
+        }
+        template.recordDemand(excessWorkload);
 
-        if (isExceedCloudQuota(template)) {
-            LOGGER.info("The new planned node will cause quota exceed in cloud " + template.getCloud().getDisplayName());
+        // equivalent templates of other clouds take the demand this cloud can't, or could serve worse
+        for (JCloudsSlaveTemplate candidate : JCloudsScheduler.rank(template)) {
+            if (excessWorkload <= 0) {
+                break;
+            }
+            if (candidate != template) {
+                LOGGER.info("Spilling " + excessWorkload + " executors of demand for label " + label + " over to cloud "
+                        + candidate.getCloud().getDisplayName());
+            }
+            for (PlannedNode plannedNode : candidate.getCloud().provision(candidate, label, excessWorkload)) {
+                plannedNodeList.add(plannedNode);
+                excessWorkload -= plannedNode.numExecutors;
+            }
+        }
+        return plannedNodeList;
+    }
+
+    private Collection<PlannedNode> provision(final JCloudsSlaveTemplate template, Label label, int excessWorkload) {
+        List<PlannedNode> plannedNodeList = new ArrayList<PlannedNode>();
+        if (provisioningPaused || template.isDraining()) {
+            LOGGER.fine("Not provisioning template " + template.name + " of cloud " + getDisplayName() + ", it is paused or draining");
             return plannedNodeList;
         }
 
-        LOGGER.info("excessWorkload:" + excessWorkload + " instanceCap:" + instanceCap + " plannedNodeListSize:"
-                + plannedNodeList.size() + " running nodes:" + getRunningNodesCount());
+        LOGGER.info("excessWorkload:" + excessWorkload + " instanceCap:" + instanceCap + " running nodes:"
+                + getRunningNodesCount() + " nodes being created:" + quotaLedger.getReservedInstances());
 
+        final List<QuotaLedger.Reservation> reservations = new ArrayList<QuotaLedger.Reservation>();
         while (excessWorkload > 0 && !Jenkins.getInstance().isQuietingDown() && !Jenkins.getInstance().isTerminating()) {
 
-            if ((getRunningNodesCount() + plannedNodeList.size()) >= instanceCap) {
+            // warm nodes are already running and already counted against the cap and the quota
+            final NodeMetadata pooled = template.takePooledNode();
+            if (pooled != null) {
+                final long requestedAt = System.currentTimeMillis();
+                PlannedNode plannedNode = plan(template, new Callable<JCloudsSlave>() {
+                    public JCloudsSlave call() throws Exception {
+                        JCloudsSlave slave = template.newSlave(pooled, false);
+                        slave.getTimeline().recordAt(ProvisioningTimeline.Event.REQUESTED, requestedAt);
+                        return slave;
+                    }
+                }, new Runnable() {
+                    public void run() {
+                        JCloudsPoolThread.getPool(template).add(pooled);
+                    }
+                });
+                if (plannedNode == null) {
+                    break;
+                }
+                plannedNodeList.add(plannedNode);
+                excessWorkload -= template.getNumExecutors();
+                continue;
+            }
+            if (circuitBreaker.isOpen()) {
+                LOGGER.info("Not creating nodes in cloud " + getDisplayName() + " after " + circuitBreaker.getConsecutiveFailures()
+                        + " consecutive failures, waiting for the circuit breaker to let a probe through");
+                break;
+            }
+            if (circuitBreaker.isHalfOpen() && !reservations.isEmpty()) {
+                LOGGER.info("Creating only one node in cloud " + getDisplayName() + " to probe whether creates work again");
+                break;
+            }
+            // our own reservations, and those of every other path creating nodes on this cloud, count as running
+            if (getInstanceHeadroom() <= 0) {
                 LOGGER.info("Instance cap reached while adding capacity for label " + ((label != null) ? label.toString() : "null"));
                 break; // maxed out
             }
+            QuotaLedger.Reservation reservation = reserveQuota(template);
+            if (reservation == null) {
+                LOGGER.info("The new planned node will cause quota exceed in cloud " + getDisplayName());
+                break;
+            }
+            reservations.add(reservation);
+            excessWorkload -= template.getNumExecutors();
+        }
 
-            plannedNodeList.add(new PlannedNode(template.name, Computer.threadPoolForRemoting.submit(new Callable<Node>() {
-                public Node call() throws Exception {
-                    LOGGER.finest("provisionSlave start");
-                    // TODO: record the output somewhere
-                    JCloudsSlave jcloudsSlave = template.provisionSlave(StreamTaskListener.fromStdout());
-                    Jenkins.getInstance().addNode(jcloudsSlave);
-                    LOGGER.finest("provisionSlave done");
-
-                    /* Cloud instances may have a long init script. If we declare the provisioning complete by returning
-                    without the connect operation, NodeProvisioner may decide that it still wants one more instance,
-                    because it sees that (1) all the slaves are offline (because it's still being launched) and (2)
-                    there's no capacity provisioned yet. Deferring the completion of provisioning until the launch goes
-                    successful prevents this problem.  */
-                    ensureLaunched(jcloudsSlave);
-                    return jcloudsSlave;
+        if (BATCH_PROVISIONING && reservations.size() > 1) {
+            // one template resolution and one create call for the whole burst, fanned out to the planned nodes
+            final int count = reservations.size();
+            final long requestedAt = System.currentTimeMillis();
+            final List<SettableFuture<Node>> launches = new ArrayList<SettableFuture<Node>>();
+            for (int i = 0; i < count; i++) {
+                launches.add(newLaunchFuture(template));
+            }
+            try {
+                executor.submit(new Runnable() {
+                    public void run() {
+                        LOGGER.info("Provisioning " + count + " nodes of template " + template.name + " in one batch");
+                        List<NodeMetadata> nodes;
+                        try {
+                            nodes = template.createNodes(reservations);
+                        } catch (Throwable t) {
+                            for (SettableFuture<Node> launched : launches) {
+                                launched.setException(t);
+                            }
+                            return;
+                        }
+                        long acceptedAt = System.currentTimeMillis();
+                        for (int i = 0; i < count; i++) {
+                            if (i >= nodes.size()) {
+                                launches.get(i).setException(new IllegalStateException("Only " + nodes.size() + " of " + count
+                                        + " nodes of template " + template.name + " were created"));
+                                continue;
+                            }
+                            try {
+                                launch(template.newSlave(nodes.get(i), requestedAt, acceptedAt), launches.get(i));
+                            } catch (Throwable t) {
+                                launches.get(i).setException(t);
+                            }
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                LOGGER.warning(e.getMessage() + ", not provisioning " + count + " nodes of template " + template.name);
+                for (QuotaLedger.Reservation reservation : reservations) {
+                    reservation.release();
                 }
-            }), Util.tryParseNumber(template.numExecutors, 1).intValue()));
-            excessWorkload -= template.getNumExecutors();
+                return plannedNodeList;
+            }
+            for (SettableFuture<Node> launched : launches) {
+                plannedNodeList.add(new PlannedNode(template.name, launched, template.getNumExecutors()));
+            }
+        } else {
+            final long requestedAt = System.currentTimeMillis();
+            for (final QuotaLedger.Reservation reservation : reservations) {
+                PlannedNode plannedNode = plan(template, new Callable<JCloudsSlave>() {
+                    public JCloudsSlave call() throws Exception {
+                        LOGGER.finest("provisionSlave start");
+                        // TODO: record the output somewhere
+                        NodeMetadata node = Iterables.getOnlyElement(template.createNodes(ImmutableList.of(reservation)));
+                        return template.newSlave(node, requestedAt, System.currentTimeMillis());
+                    }
+                }, new Runnable() {
+                    public void run() {
+                        reservation.release();
+                    }
+                });
+                if (plannedNode != null) {
+                    plannedNodeList.add(plannedNode);
+                }
+            }
         }
         return plannedNodeList;
     }
 
-    private void ensureLaunched(JCloudsSlave jcloudsSlave) throws InterruptedException, ExecutionException {
-        jcloudsSlave.waitForPhoneHome(null);
+    /**
+     * Creates the slave on this cloud's executor and plans a node that completes once the slave is online.
+     *
+     * @param onRejected undoes what was set aside for the slave when the executor is full.
+     * @return the planned node, or {@code null} if the executor refused the work.
+     */
+    private PlannedNode plan(JCloudsSlaveTemplate template, final Callable<JCloudsSlave> slaveFactory, Runnable onRejected) {
+        final SettableFuture<Node> launched = newLaunchFuture(template);
+        try {
+            executor.submit(new Runnable() {
+                public void run() {
+                    try {
+                        launch(slaveFactory.call(), launched);
+                    } catch (Throwable t) {
+                        launched.setException(t);
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warning(e.getMessage() + ", not provisioning a node of template " + template.name);
+            onRejected.run();
+            return null;
+        }
+        return new PlannedNode(template.name, launched, template.getNumExecutors());
+    }
+
+    private SettableFuture<Node> newLaunchFuture(JCloudsSlaveTemplate template) {
+        SettableFuture<Node> launched = SettableFuture.create();
+        final long plannedAt = System.currentTimeMillis();
+        final String templateName = template.name;
+        final PhaseTimings timings = PhaseTimings.of(name, templateName);
+        Futures.addCallback(launched, new FutureCallback<Node>() {
+            public void onSuccess(Node node) {
+                provisioningLatency.record(System.currentTimeMillis() - plannedAt);
+                timings.record(ProvisioningPhase.ONLINE, plannedAt);
+                Metrics.NODES_PROVISIONED.inc(name, templateName);
+            }
+
+            public void onFailure(Throwable t) {
+                Metrics.PROVISIONING_FAILURES.inc(name, templateName);
+            }
+        });
+        return launched;
+    }
+
+    private void launch(JCloudsSlave jcloudsSlave, SettableFuture<Node> launched) throws IOException {
+        /* Cloud instances may have a long init script. If we declare the provisioning complete by returning
+        without the connect operation, NodeProvisioner may decide that it still wants one more instance,
+        because it sees that (1) all the slaves are offline (because it's still being launched) and (2)
+        there's no capacity provisioned yet. Deferring the completion of provisioning until the launch goes
+        successful prevents this problem.  */
         Integer launchTimeoutSec;
         try {
             launchTimeoutSec = Integer.parseInt(System.getProperty("jclouds.plugin.launchTimeoutSec"));
@@ -260,26 +753,13 @@ public class JCloudsCloud extends Cloud {
             connectInterval = 10;  // default value, unit:second
         }
 
-        Computer computer = jcloudsSlave.toComputer();
-        long startMoment = System.currentTimeMillis();
-        while (computer.isOffline()) {
-            try {
-                Thread.sleep(connectInterval * 1000L);
-                LOGGER.info(String.format("Slave [%s] not connected yet", jcloudsSlave.getDisplayName()));
-                computer.connect(false).get();
-            } catch (InterruptedException e) {
-                LOGGER.warning(String.format("Error while launching slave: %s", e));
-            } catch (ExecutionException e) {
-                LOGGER.warning(String.format("Error while launching slave: %s", e));
-            }
-
-            if ((System.currentTimeMillis() - startMoment) > 1000L * launchTimeoutSec) {
-                String message = String.format("Failed to connect to slave within timeout (%d s).", launchTimeoutSec);
-                LOGGER.warning(message);
-                throw new ExecutionException(new Throwable(message));
-            }
-        }
-        LOGGER.info(String.format("The slave [%s] is ready to work now !!!", jcloudsSlave.getDisplayName()));
+        // the launcher waits for the phone home before it connects
+        long timeoutMillis = TimeUnit.SECONDS.toMillis(launchTimeoutSec)
+                + (jcloudsSlave.isWaitPhoneHome() ? jcloudsSlave.getWaitPhoneHomeTimeoutMs() : 0);
+        // tracked before it is added, the retention strategy starts the first launch right away
+        JCloudsLaunchListener.track(jcloudsSlave, launched, timeoutMillis, TimeUnit.SECONDS.toMillis(connectInterval));
+        Jenkins.getInstance().addNode(jcloudsSlave);
+        LOGGER.finest("provisionSlave done");
     }
 
     @Override
@@ -298,10 +778,7 @@ public class JCloudsCloud extends Cloud {
      * Gets {@link jenkins.plugins.jclouds.compute.JCloudsSlaveTemplate} that has the matching {@link Label}.
      */
     public JCloudsSlaveTemplate getTemplate(Label label) {
-        for (JCloudsSlaveTemplate t : templates)
-            if (label == null || label.matches(t.getLabelSet()))
-                return t;
-        return null;
+        return templateIndex.get(label);
     }
 
     /**
@@ -327,7 +804,7 @@ public class JCloudsCloud extends Cloud {
             return;
         }
 
-        if (getRunningNodesCount() < instanceCap) {
+        if (getInstanceHeadroom() > 0) {
             StringWriter sw = new StringWriter();
             StreamTaskListener listener = new StreamTaskListener(sw);
             JCloudsSlave node = t.provisionSlave(listener);
@@ -342,16 +819,26 @@ public class JCloudsCloud extends Cloud {
      * Determine how many nodes are currently running for this cloud.
      */
     public int getRunningNodesCount() {
+        return countRunningNodes(inventory.getNodes());
+    }
+
+    /**
+     * The nodes this cloud may still start: the instance cap less the running nodes and the nodes being created, which
+     * the inventory snapshot doesn't show until their create returns.
+     */
+    int getInstanceHeadroom() {
+        return instanceCap - getRunningNodesCount() - quotaLedger.getReservedInstances();
+    }
+
+    int countRunningNodes(Collection<NodeMetadata> nodes) {
         int nodeCount = 0;
 
-        for (ComputeMetadata cm : getCompute().listNodes()) {
-            if (NodeMetadata.class.isInstance(cm)) {
-                String nodeGroup = ((NodeMetadata) cm).getGroup();
+        for (NodeMetadata nm : nodes) {
+            String nodeGroup = nm.getGroup();
 
-                if (getTemplate(nodeGroup) != null && !((NodeMetadata) cm).getStatus().equals(NodeMetadata.Status.SUSPENDED)
-                        && !((NodeMetadata) cm).getStatus().equals(NodeMetadata.Status.TERMINATED)) {
-                    nodeCount++;
-                }
+            if (getTemplate(nodeGroup) != null && !nm.getStatus().equals(NodeMetadata.Status.SUSPENDED)
+                    && !nm.getStatus().equals(NodeMetadata.Status.TERMINATED)) {
+                nodeCount++;
             }
         }
         return nodeCount;
@@ -384,76 +871,109 @@ public class JCloudsCloud extends Cloud {
     private JCloudResource getRunningNodesResource() {
         JCloudResource jCloudResource = new JCloudResource();
 
-        for (ComputeMetadata cm : getCompute().listNodes()) {
-            if (NodeMetadata.class.isInstance(cm)) {
-                String nodeGroup = ((NodeMetadata) cm).getGroup();
+        for (NodeMetadata nm : inventory.getNodes()) {
+            String nodeGroup = nm.getGroup();
 
-                if (getTemplate(nodeGroup) != null && !((NodeMetadata) cm).getStatus().equals(NodeMetadata.Status.SUSPENDED)
-                        && !((NodeMetadata) cm).getStatus().equals(NodeMetadata.Status.TERMINATED)) {
-                    jCloudResource.vcpuAmount += ((NodeMetadata) cm).getHardware().getProcessors().size();
-                    jCloudResource.ramAmount += ((NodeMetadata) cm).getHardware().getRam();
-                    jCloudResource.runningNodeNum++;
-                }
+            if (getTemplate(nodeGroup) != null && !nm.getStatus().equals(NodeMetadata.Status.SUSPENDED)
+                    && !nm.getStatus().equals(NodeMetadata.Status.TERMINATED)) {
+                jCloudResource.vcpuAmount += nm.getHardware().getProcessors().size();
+                jCloudResource.ramAmount += nm.getHardware().getRam();
+                jCloudResource.runningNodeNum++;
             }
         }
         return jCloudResource;
     }
 
-    private boolean isExceedCloudQuota(JCloudsSlaveTemplate template) {
-        ComputeService computeService = getCompute();
-        LOGGER.finest("Jcloud-Plugin-Debug: get tenant from template: " + tenantId);
-        Map<String, Integer> cloudQuota;
+    /**
+     * Reserves the tenant quota for one node of the template, to be committed or released once it is created.
+     *
+     * @return the reservation, or {@code null} if the node would exceed the tenant quota.
+     */
+    QuotaLedger.Reservation reserveQuota(JCloudsSlaveTemplate template) {
+        long startedAt = System.currentTimeMillis();
         try {
-            cloudQuota = computeService.getQuotaByTenant(zones, tenantId);
-        } catch (Exception e) {
-            LOGGER.warning("Failed to get quota of cloud.\n" + e);
-            return false;
+            return tryReserveQuota(template);
+        } finally {
+            PhaseTimings.of(name, template.name).record(ProvisioningPhase.QUOTA, startedAt);
         }
+    }
+
+    private QuotaLedger.Reservation tryReserveQuota(JCloudsSlaveTemplate template) {
+        LOGGER.finest("Jcloud-Plugin-Debug: get tenant from template: " + tenantId);
+        Map<String, Integer> flavor = getPlannedResource(template);
+        int plannedVcpu = flavor.get(VCPU_KEY);
+        int plannedRam = flavor.get(RAM_KEY);
+        LOGGER.finest("Jcloud-Plugin-Debug: planned vcpu:" + plannedVcpu + " planned ram: " + plannedRam);
 
-        Map<String, Integer> totalUsage;
+        QuotaLedger.Reservation reservation;
         try {
-            totalUsage = computeService.getTotalUsageByTenant(zones, tenantId);
+            reservation = quotaLedger.tryReserve(plannedVcpu, plannedRam);
         } catch (Exception e) {
-            LOGGER.warning("Failed to get total usage of tenant. \n" + e);
-            return false;
+            LOGGER.warning("Failed to get quota or total usage of tenant.\n" + e);
+            return quotaLedger.reserve(plannedVcpu, plannedRam);
         }
+        if (reservation == null) {
+            Map<String, Integer> cloudQuota = quotaCache.getQuota();
+            Map<String, Integer> totalUsage = quotaCache.getUsage();
+            logResourceUsage(cloudQuota, flavor, totalUsage);
+            LOGGER.info(String.format("The new planned node (%d vcpu, %d ram) exceeds the quota of cloud %s: "
+                    + "%s %d + %d reserved of %d, %s %d + %d reserved of %d, %s %d + %d reserved of %d",
+                    plannedVcpu, plannedRam, getDisplayName(),
+                    VCPU_KEY, totalUsage.get(VCPU_KEY), quotaLedger.getReservedVcpu(), cloudQuota.get(VCPU_KEY),
+                    RAM_KEY, totalUsage.get(RAM_KEY), quotaLedger.getReservedRam(), cloudQuota.get(RAM_KEY),
+                    INSTANCE_KEY, totalUsage.get(INSTANCE_KEY), quotaLedger.getReservedInstances(), cloudQuota.get(INSTANCE_KEY)));
+        }
+        return reservation;
+    }
 
-        int plannedVcpu;
-        int plannedRam;
+    /**
+     * Reloads the tenant usage once it is past its TTL and drops reservations whose create never finished.
+     */
+    void reconcileQuota() {
+        quotaLedger.expire(TimeUnit.HOURS.toMillis(1));
+        Map<String, Integer> quota = quotaCache.getQuota();
+        Map<String, Integer> usage = quotaCache.getUsage();
+        updateHeadroom(VCPU_KEY, quota, usage, quotaLedger.getReservedVcpu());
+        updateHeadroom(RAM_KEY, quota, usage, quotaLedger.getReservedRam());
+        updateHeadroom(INSTANCE_KEY, quota, usage, quotaLedger.getReservedInstances());
+    }
 
-        Map<String, Integer> flavor = ImmutableMap.of(VCPU_KEY, 0, RAM_KEY, 0, INSTANCE_KEY, 0);
-        if (Strings.isNullOrEmpty(template.hardwareId)) {
-            plannedVcpu = ((Double) template.cores).intValue();
-            plannedRam = template.ram;
-        } else {
-            String flavorId = template.hardwareId.split("/")[1];
-            LOGGER.finest("Jcloud-Plugin-Debug: flavorId: " + flavorId);
-            try {
-                flavor = computeService.getFlavorByFlavorId(zones, flavorId);
-                plannedVcpu = flavor.get(VCPU_KEY);
-                plannedRam = flavor.get(RAM_KEY);
-            } catch (Exception e) {
-                LOGGER.warning("Failed to get flavor. \n" + e);
-                // Use default value
-                plannedVcpu = DEFAULT_VCPU;
-                plannedRam = DEFAULT_RAM;
-            }
+    private void updateHeadroom(String key, Map<String, Integer> quota, Map<String, Integer> usage, int reserved) {
+        Integer limit = quota.get(key);
+        // a negative quota is unlimited
+        if (limit != null && limit >= 0 && usage.get(key) != null) {
+            Metrics.QUOTA_HEADROOM.set(limit - usage.get(key) - reserved, name, key);
         }
+    }
 
-        logResourceUsage(cloudQuota, flavor, totalUsage);
-        LOGGER.finest("Jcloud-Plugin-Debug: planned vcpu:" + plannedVcpu + " planned ram: " + plannedRam);
+    /**
+     * The vcpu and ram one node of the template takes from the tenant quota.
+     */
+    Map<String, Integer> getPlannedResource(JCloudsSlaveTemplate template) {
+        if (Strings.isNullOrEmpty(template.hardwareId)) {
+            return ImmutableMap.of(VCPU_KEY, ((Double) template.cores).intValue(), RAM_KEY, template.ram);
+        }
+        String flavorId = template.hardwareId.split("/")[1];
+        LOGGER.finest("Jcloud-Plugin-Debug: flavorId: " + flavorId);
+        try {
+            Map<String, Integer> flavor = quotaCache.getFlavor(flavorId);
+            return ImmutableMap.of(VCPU_KEY, flavor.get(VCPU_KEY), RAM_KEY, flavor.get(RAM_KEY));
+        } catch (Exception e) {
+            LOGGER.warning("Failed to get flavor. \n" + e);
+            // Use default value
+            return ImmutableMap.of(VCPU_KEY, DEFAULT_VCPU, RAM_KEY, DEFAULT_RAM);
+        }
+    }
 
-        if (totalUsage.get(VCPU_KEY) + plannedVcpu > cloudQuota.get(VCPU_KEY)) {
-            logResourceExceed(VCPU_KEY, cloudQuota, totalUsage);
-            return true;
-        } else if (totalUsage.get(RAM_KEY) + plannedRam > cloudQuota.get(RAM_KEY)) {
-            logResourceExceed(RAM_KEY, cloudQuota, totalUsage);
-            return true;
-        } else if (totalUsage.get(INSTANCE_KEY) + 1 > cloudQuota.get(INSTANCE_KEY)) {
-            logResourceExceed(INSTANCE_KEY, cloudQuota, totalUsage);
-            return true;
+    /**
+     * Accounts a node we destroyed in the cached tenant usage.
+     */
+    void onNodeDestroyed(String group) {
+        JCloudsSlaveTemplate template = getTemplate(group);
+        if (template != null) {
+            Map<String, Integer> resource = getPlannedResource(template);
+            quotaCache.nodeDestroyed(resource.get(VCPU_KEY), resource.get(RAM_KEY));
         }
-        return false;
     }
 
     private void logResourceUsage(Map<String, Integer> cloudQuota, Map<String, Integer> flavor,
@@ -473,11 +993,6 @@ public class JCloudsCloud extends Cloud {
                 INSTANCE_KEY, totalUsage.get(INSTANCE_KEY)));
     }
 
-    private void logResourceExceed(String key, Map<String, Integer> cloudQuota, Map<String, Integer> totalUsage) {
-        LOGGER.info(String.format("The %s (current + planned = %d + %d) exceeds the quota %d",
-                key, totalUsage.get(key), 1, cloudQuota.get(key)));
-    }
-
     @Extension
     public static class DescriptorImpl extends Descriptor<Cloud> {
 
@@ -506,20 +1021,15 @@ public class JCloudsCloud extends Cloud {
             zones = Util.fixEmptyAndTrim(zones);
 
             FormValidation result = FormValidation.ok("Connection succeeded!");
-            ComputeServiceContext ctx = null;
+            ComputeContextPool.Lease lease = null;
             try {
-                Properties overrides = new Properties();
-                if (!Strings.isNullOrEmpty(endPointUrl)) {
-                    overrides.setProperty(Constants.PROPERTY_ENDPOINT, endPointUrl);
-                }
-
-                ctx = ctx(providerName, identity, credential, overrides, zones);
+                lease = lease(providerName, identity, credential, endPointUrl, zones);
 
-                ctx.getComputeService().listNodes();
+                lease.getContext().getComputeService().listNodes();
             } catch (Exception ex) {
                 result = FormValidation.error("Cannot connect to specified cloud, please check the identity and credentials: " + ex.getMessage());
             } finally {
-                Closeables.close(ctx, true);
+                Closeables.close(lease, true);
             }
             return result;
         }
@@ -553,39 +1063,17 @@ public class JCloudsCloud extends Cloud {
         public ListBoxModel doFillProviderNameItems() {
             ListBoxModel m = new ListBoxModel();
 
-            // correct the classloader so that extensions can be found
-            Thread.currentThread().setContextClassLoader(Apis.class.getClassLoader());
             // TODO: apis need endpoints, providers don't; do something smarter
             // with this stuff :)
-            Builder<String> builder = ImmutableSet.<String>builder();
-            builder.addAll(Iterables.transform(Apis.viewableAs(ComputeServiceContext.class), Apis.idFunction()));
-            builder.addAll(Iterables.transform(Providers.viewableAs(ComputeServiceContext.class), Providers.idFunction()));
-            Iterable<String> supportedProviders = ImmutableSortedSet.copyOf(builder.build());
-
-            for (String supportedProvider : supportedProviders) {
+            for (String supportedProvider : ProviderCatalog.of(ComputeServiceContext.class).getIds()) {
                 m.add(supportedProvider, supportedProvider);
             }
             return m;
         }
 
         public AutoCompletionCandidates doAutoCompleteProviderName(@QueryParameter final String value) {
-            // correct the classloader so that extensions can be found
-            Thread.currentThread().setContextClassLoader(Apis.class.getClassLoader());
-            // TODO: apis need endpoints, providers don't; do something smarter
-            // with this stuff :)
-            Builder<String> builder = ImmutableSet.<String>builder();
-            builder.addAll(Iterables.transform(Apis.viewableAs(ComputeServiceContext.class), Apis.idFunction()));
-            builder.addAll(Iterables.transform(Providers.viewableAs(ComputeServiceContext.class), Providers.idFunction()));
-            Iterable<String> supportedProviders = builder.build();
-
-            Iterable<String> matchedProviders = Iterables.filter(supportedProviders, new Predicate<String>() {
-                public boolean apply(@Nullable String input) {
-                    return input != null && input.startsWith(value.toLowerCase());
-                }
-            });
-
             AutoCompletionCandidates candidates = new AutoCompletionCandidates();
-            for (String matchedProvider : matchedProviders) {
+            for (String matchedProvider : ProviderCatalog.of(ComputeServiceContext.class).withPrefix(value.toLowerCase())) {
                 candidates.add(matchedProvider);
             }
             return candidates;
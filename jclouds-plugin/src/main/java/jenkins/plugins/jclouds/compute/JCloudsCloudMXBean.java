@@ -0,0 +1,70 @@
+package jenkins.plugins.jclouds.compute;
+
+/**
+ * Live state of a {@link JCloudsCloud}, registered as {@code jenkins.plugins.jclouds:type=Cloud,name=<cloud>}.
+ * <p/>
+ * Attributes are read from the cloud's cached state and never call the provider.
+ */
+public interface JCloudsCloudMXBean {
+
+    String getName();
+
+    int getInstanceCap();
+
+    int getRunningNodes();
+
+    /**
+     * Planned nodes whose create did not finish yet.
+     */
+    int getInFlightCreates();
+
+    int getReservedVcpu();
+
+    int getReservedRam();
+
+    long getInventoryAgeMillis();
+
+    boolean isCircuitBreakerOpen();
+
+    int getConsecutiveCreateFailures();
+
+    double getCreateRatePerSecond();
+
+    int getCreateBurst();
+
+    double getDeleteRatePerSecond();
+
+    int getDeleteBurst();
+
+    double getListRatePerSecond();
+
+    int getListBurst();
+
+    double getQuotaRatePerSecond();
+
+    int getQuotaBurst();
+
+    int getActiveProvisioningThreads();
+
+    int getQueuedProvisioningTasks();
+
+    long getRejectedProvisioningTasks();
+
+    long getProvisioningLatencyMillis();
+
+    boolean isProvisioningPaused();
+
+    /**
+     * How long the bulk load of the slave metadata took after startup, or -1 if it didn't run yet.
+     */
+    long getHydrationMillis();
+
+    /**
+     * Lists the nodes of the cloud now instead of waiting for the next background refresh.
+     */
+    void refreshInventory();
+
+    void pauseProvisioning();
+
+    void resumeProvisioning();
+}
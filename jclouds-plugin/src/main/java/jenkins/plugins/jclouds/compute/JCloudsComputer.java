@@ -4,22 +4,30 @@ import java.io.IOException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.Collections;
 import java.util.Date;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 
 import javax.servlet.ServletException;
 
 import org.apache.commons.lang.StringUtils;
+import org.jclouds.compute.domain.NodeMetadata;
 import org.kohsuke.stapler.HttpRedirect;
 import org.kohsuke.stapler.HttpResponse;
 import org.kohsuke.stapler.StaplerRequest;
 import org.kohsuke.stapler.StaplerResponse;
 
+import hudson.model.Computer;
 import hudson.model.Descriptor;
 import hudson.model.Hudson;
+import hudson.model.Node;
 import hudson.slaves.AbstractCloudComputer;
 import hudson.slaves.OfflineCause;
 import hudson.slaves.SlaveComputer;
+import jenkins.model.Jenkins;
 
 /**
  * JClouds version of Jenkins {@link SlaveComputer} - responsible for terminating an instance.
@@ -30,8 +38,76 @@ public class JCloudsComputer extends AbstractCloudComputer<JCloudsSlave> {
 
     private static final Logger LOGGER = Logger.getLogger(JCloudsComputer.class.getName());
 
+    // node names by hostname, so that phone home can find its slave without asking the cloud
+    private static final ConcurrentMap<String, String> NODE_NAMES_BY_HOSTNAME = new ConcurrentHashMap<String, String>();
+    // node ids of older slaves whose hostname couldn't be learned
+    private static final Set<String> UNKNOWN_HOSTNAMES = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
     public JCloudsComputer(JCloudsSlave slave) {
         super(slave);
+        register(slave);
+    }
+
+    /**
+     * Looks up the computer of the slave with the given hostname.
+     *
+     * @return the computer, or {@code null} if no known slave has that hostname.
+     */
+    public static JCloudsComputer getByHostname(String hostname) {
+        String nodeName = NODE_NAMES_BY_HOSTNAME.get(hostname);
+        if (nodeName == null) {
+            return null;
+        }
+        Node node = Jenkins.getInstance().getNode(nodeName);
+        Computer computer = node == null ? null : node.toComputer();
+        return JCloudsComputer.class.isInstance(computer) ? (JCloudsComputer) computer : null;
+    }
+
+    /**
+     * Slaves created by older versions don't know their hostname; learns it from their metadata, which the cloud
+     * hydrates with one listing after a restart, and saves it with the slave. Slaves whose hostname can't be learned
+     * are not asked again.
+     */
+    static void learnHostnames(String cloudName) {
+        for (Node n : Jenkins.getInstance().getNodes()) {
+            if (!(n instanceof JCloudsSlave)) {
+                continue;
+            }
+            JCloudsSlave slave = (JCloudsSlave) n;
+            if (slave.getHostname() != null || !cloudName.equals(slave.getCloudName())
+                    || !UNKNOWN_HOSTNAMES.add(slave.getNodeId())) {
+                continue;
+            }
+            try {
+                NodeMetadata metadata = slave.getNodeMetaData();
+                String hostname = metadata == null ? null : metadata.getHostname();
+                if (hostname == null) {
+                    LOGGER.warning("Slave " + slave.getNodeName() + " has no hostname, it can't phone home");
+                    continue;
+                }
+                slave.setHostname(hostname);
+                register(slave);
+                UNKNOWN_HOSTNAMES.remove(slave.getNodeId());
+                JCloudsUtility.saveNodeSettingToConfig(slave);
+            } catch (RuntimeException e) {
+                LOGGER.warning("Failed to get the hostname of slave " + slave.getNodeName() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private static void register(JCloudsSlave slave) {
+        if (slave.getHostname() != null) {
+            NODE_NAMES_BY_HOSTNAME.put(slave.getHostname(), slave.getNodeName());
+        }
+    }
+
+    @Override
+    protected void onRemoved() {
+        JCloudsSlave slave = getNode();
+        if (slave != null && slave.getHostname() != null) {
+            NODE_NAMES_BY_HOSTNAME.remove(slave.getHostname(), slave.getNodeName());
+        }
+        super.onRemoved();
     }
 
     public String getInstanceId() {
@@ -0,0 +1,135 @@
+package jenkins.plugins.jclouds.compute;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+import hudson.Extension;
+import hudson.FilePath;
+import hudson.model.Computer;
+import hudson.model.Node;
+import hudson.model.TaskListener;
+import hudson.remoting.Channel;
+import hudson.slaves.ComputerListener;
+import jenkins.plugins.jclouds.compute.internal.ProvisioningTimeline;
+import jenkins.util.Timer;
+import shaded.com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Completes the futures of planned nodes when their slave comes online, instead of a provisioning thread polling it.
+ * <p/>
+ * Failed launches are retried on the shared {@link Timer} with exponential backoff, until the launch timeout fails
+ * the future.
+ */
+@Extension
+public class JCloudsLaunchListener extends ComputerListener {
+    private static final Logger LOGGER = Logger.getLogger(JCloudsLaunchListener.class.getName());
+
+    private static final long INITIAL_BACKOFF_MILLIS = 1000;
+
+    private static final ConcurrentMap<String, PendingLaunch> PENDING = new ConcurrentHashMap<String, PendingLaunch>();
+
+    /**
+     * Tracks the launch of a slave that is about to be added to Jenkins.
+     *
+     * @param launched         completed with the slave once it is online, or failed once {@code timeoutMillis} passed.
+     * @param maxBackoffMillis upper bound of the delay between two launch attempts.
+     */
+    static void track(JCloudsSlave slave, SettableFuture<Node> launched, long timeoutMillis, long maxBackoffMillis) {
+        final PendingLaunch launch = new PendingLaunch(slave, launched, maxBackoffMillis);
+        PENDING.put(slave.getNodeName(), launch);
+        Timer.get().schedule(new Runnable() {
+            public void run() {
+                launch.timeout();
+            }
+        }, timeoutMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void preOnline(Computer c, Channel channel, FilePath root, TaskListener listener) {
+        if (c instanceof JCloudsComputer) {
+            JCloudsSlave slave = ((JCloudsComputer) c).getNode();
+            if (slave != null) {
+                slave.getTimeline().record(ProvisioningTimeline.Event.SSH_CONNECTED);
+            }
+        }
+    }
+
+    @Override
+    public void onOnline(Computer c, TaskListener listener) {
+        if (c instanceof JCloudsComputer) {
+            JCloudsSlave slave = ((JCloudsComputer) c).getNode();
+            if (slave != null) {
+                slave.getTimeline().record(ProvisioningTimeline.Event.ONLINE);
+                // persists the timeline once the slave is up, along with any other pending change
+                JCloudsUtility.saveNodeSettingToConfig(slave);
+            }
+        }
+        PendingLaunch launch = PENDING.remove(c.getName());
+        if (launch != null) {
+            launch.online();
+        }
+    }
+
+    @Override
+    public void onLaunchFailure(Computer c, TaskListener taskListener) {
+        PendingLaunch launch = PENDING.get(c.getName());
+        if (launch != null) {
+            launch.retry();
+        }
+    }
+
+    private static class PendingLaunch {
+        private final JCloudsSlave slave;
+        private final SettableFuture<Node> launched;
+        private final long maxBackoffMillis;
+        private final long startedAt = System.currentTimeMillis();
+        private long backoffMillis = INITIAL_BACKOFF_MILLIS;
+
+        PendingLaunch(JCloudsSlave slave, SettableFuture<Node> launched, long maxBackoffMillis) {
+            this.slave = slave;
+            this.launched = launched;
+            this.maxBackoffMillis = maxBackoffMillis;
+        }
+
+        void online() {
+            LOGGER.info(String.format("The slave [%s] is ready to work now after %d ms", slave.getDisplayName(),
+                    System.currentTimeMillis() - startedAt));
+            launched.set(slave);
+        }
+
+        synchronized void retry() {
+            final long delay = backoffMillis;
+            backoffMillis = Math.min(backoffMillis * 2, Math.max(maxBackoffMillis, INITIAL_BACKOFF_MILLIS));
+            LOGGER.info(String.format("Slave [%s] not connected yet, retrying in %d ms", slave.getDisplayName(), delay));
+            Timer.get().schedule(new Runnable() {
+                public void run() {
+                    if (launched.isDone()) {
+                        return;
+                    }
+                    Computer computer = slave.toComputer();
+                    if (computer == null) {
+                        fail(new IllegalStateException("Slave " + slave.getDisplayName() + " was removed before it came online."));
+                    } else if (computer.isOffline()) {
+                        computer.connect(false);
+                    }
+                }
+            }, delay, TimeUnit.MILLISECONDS);
+        }
+
+        void timeout() {
+            if (!launched.isDone()) {
+                fail(new TimeoutException(String.format("Failed to connect to slave within timeout (%d s).",
+                        TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis() - startedAt))));
+            }
+        }
+
+        private void fail(Throwable cause) {
+            LOGGER.warning(cause.getMessage());
+            PENDING.remove(slave.getNodeName(), this);
+            launched.setException(cause);
+        }
+    }
+}
@@ -10,6 +10,9 @@ import hudson.model.TaskListener;
 import hudson.plugins.sshslaves.SSHLauncher;
 import hudson.slaves.ComputerLauncher;
 import hudson.slaves.SlaveComputer;
+import jenkins.plugins.jclouds.compute.internal.PhaseTimings;
+import jenkins.plugins.jclouds.compute.internal.ProvisioningPhase;
+import jenkins.plugins.jclouds.compute.internal.ProvisioningTimeline;
 import shaded.com.google.common.base.Strings;
 
 /**
@@ -34,12 +37,18 @@ public class JCloudsLauncher extends ComputerLauncher {
         PrintStream logger = listener.getLogger();
 
         final JCloudsSlave slave = (JCloudsSlave) computer.getNode();
+        PhaseTimings timings = PhaseTimings.of(slave.getCloudName(), slave.getTemplateName());
 
         String host = slave.getPublicIpAddress(); // public IP address is saved for offline slave
         if (Strings.isNullOrEmpty(host)) {
             final String[] addresses = getConnectionAddresses(slave.getNodeMetaData(), logger);
+            if (addresses.length > 0 && !"0.0.0.0".equals(addresses[0])) {
+                slave.getTimeline().record(ProvisioningTimeline.Event.IP_ASSIGNED);
+            }
 
+            long startedAt = System.currentTimeMillis();
             slave.waitForPhoneHome(logger);
+            timings.record(ProvisioningPhase.PHONE_HOME, startedAt);
 
             host = addresses[0];
 
@@ -53,7 +62,11 @@ public class JCloudsLauncher extends ComputerLauncher {
         }
 
         SSHLauncher launcher = new SSHLauncher(host, 22, slave.getCredentialsId(), slave.getJvmOptions(), null, "", "", Integer.valueOf(0), null, null);
+        long startedAt = System.currentTimeMillis();
         launcher.launch(computer, listener);
+        if (computer.isOnline()) {
+            timings.record(ProvisioningPhase.SSH_CONNECT, startedAt);
+        }
     }
 
     /**
@@ -0,0 +1,301 @@
+package jenkins.plugins.jclouds.compute;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.init.Terminator;
+import hudson.model.Node;
+import hudson.slaves.Cloud;
+import jenkins.model.Jenkins;
+import jenkins.plugins.jclouds.compute.internal.ApiOperation;
+import jenkins.plugins.jclouds.compute.internal.PhaseTimings;
+import jenkins.plugins.jclouds.compute.internal.ProvisioningPhase;
+
+/**
+ * Registers a {@link JCloudsCloudMXBean} per cloud and a {@link JCloudsTemplateMXBean} per template with the platform
+ * MBean server.
+ * <p/>
+ * The beans look their cloud and template up by name on every call, so they follow reconfigurations. The set of
+ * beans is brought in line with the configured clouds after startup and by every run of {@link JCloudsRefreshThread}.
+ */
+public final class JCloudsMBeans {
+    private static final Logger LOGGER = Logger.getLogger(JCloudsMBeans.class.getName());
+
+    static final String DOMAIN = "jenkins.plugins.jclouds";
+
+    private JCloudsMBeans() {
+    }
+
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void register() {
+        sync();
+    }
+
+    @Terminator
+    public static void unregister() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (ObjectName registered : server.queryNames(new ObjectName(DOMAIN + ":*"), null)) {
+                server.unregisterMBean(registered);
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Failed to unregister the JClouds MBeans", e);
+        }
+    }
+
+    /**
+     * Registers the beans of new clouds and templates and unregisters those of removed ones.
+     */
+    static synchronized void sync() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            Set<ObjectName> wanted = new HashSet<ObjectName>();
+            for (Cloud c : Jenkins.getInstance().clouds) {
+                if (!(c instanceof JCloudsCloud)) {
+                    continue;
+                }
+                JCloudsCloud cloud = (JCloudsCloud) c;
+                ObjectName cloudName = cloudName(cloud.name);
+                wanted.add(cloudName);
+                if (!server.isRegistered(cloudName)) {
+                    server.registerMBean(new CloudBean(cloud.name), cloudName);
+                }
+                for (JCloudsSlaveTemplate template : cloud.getTemplates()) {
+                    ObjectName templateName = templateName(cloud.name, template.name);
+                    wanted.add(templateName);
+                    if (!server.isRegistered(templateName)) {
+                        server.registerMBean(new TemplateBean(cloud.name, template.name), templateName);
+                    }
+                }
+            }
+            for (ObjectName registered : server.queryNames(new ObjectName(DOMAIN + ":*"), null)) {
+                if (!wanted.contains(registered)) {
+                    server.unregisterMBean(registered);
+                }
+            }
+        } catch (JMException e) {
+            LOGGER.log(Level.WARNING, "Failed to register the JClouds MBeans", e);
+        }
+    }
+
+    static ObjectName cloudName(String cloud) throws JMException {
+        return new ObjectName(DOMAIN + ":type=Cloud,name=" + ObjectName.quote(cloud));
+    }
+
+    static ObjectName templateName(String cloud, String template) throws JMException {
+        return new ObjectName(DOMAIN + ":type=Template,cloud=" + ObjectName.quote(cloud) + ",name=" + ObjectName.quote(template));
+    }
+
+    private static JCloudsCloud cloud(String name) {
+        JCloudsCloud cloud = JCloudsCloud.getByName(name);
+        if (cloud == null) {
+            throw new IllegalStateException("Cloud " + name + " no longer exists");
+        }
+        return cloud;
+    }
+
+    private static final class CloudBean implements JCloudsCloudMXBean {
+        private final String name;
+
+        CloudBean(String name) {
+            this.name = name;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getInstanceCap() {
+            return cloud(name).instanceCap;
+        }
+
+        public int getRunningNodes() {
+            JCloudsCloud cloud = cloud(name);
+            return cloud.countRunningNodes(cloud.getInventory().getSnapshot());
+        }
+
+        public int getInFlightCreates() {
+            return cloud(name).getQuotaLedger().getReservedInstances();
+        }
+
+        public int getReservedVcpu() {
+            return cloud(name).getQuotaLedger().getReservedVcpu();
+        }
+
+        public int getReservedRam() {
+            return cloud(name).getQuotaLedger().getReservedRam();
+        }
+
+        public long getInventoryAgeMillis() {
+            return cloud(name).getInventory().getAgeMillis();
+        }
+
+        public boolean isCircuitBreakerOpen() {
+            return cloud(name).getCircuitBreaker().isOpen();
+        }
+
+        public int getConsecutiveCreateFailures() {
+            return cloud(name).getCircuitBreaker().getConsecutiveFailures();
+        }
+
+        public double getCreateRatePerSecond() {
+            return cloud(name).getRateLimiter(ApiOperation.CREATE).getPermitsPerSecond();
+        }
+
+        public int getCreateBurst() {
+            return cloud(name).getRateLimiter(ApiOperation.CREATE).getBurst();
+        }
+
+        public double getDeleteRatePerSecond() {
+            return cloud(name).getRateLimiter(ApiOperation.DELETE).getPermitsPerSecond();
+        }
+
+        public int getDeleteBurst() {
+            return cloud(name).getRateLimiter(ApiOperation.DELETE).getBurst();
+        }
+
+        public double getListRatePerSecond() {
+            return cloud(name).getRateLimiter(ApiOperation.LIST).getPermitsPerSecond();
+        }
+
+        public int getListBurst() {
+            return cloud(name).getRateLimiter(ApiOperation.LIST).getBurst();
+        }
+
+        public double getQuotaRatePerSecond() {
+            return cloud(name).getRateLimiter(ApiOperation.QUOTA).getPermitsPerSecond();
+        }
+
+        public int getQuotaBurst() {
+            return cloud(name).getRateLimiter(ApiOperation.QUOTA).getBurst();
+        }
+
+        public int getActiveProvisioningThreads() {
+            return cloud(name).getExecutor().getActiveCount();
+        }
+
+        public int getQueuedProvisioningTasks() {
+            return cloud(name).getExecutor().getQueueDepth();
+        }
+
+        public long getRejectedProvisioningTasks() {
+            return cloud(name).getExecutor().getRejectedCount();
+        }
+
+        public long getProvisioningLatencyMillis() {
+            return cloud(name).getProvisioningLatency().getMillis();
+        }
+
+        public boolean isProvisioningPaused() {
+            return cloud(name).isProvisioningPaused();
+        }
+
+        public long getHydrationMillis() {
+            return cloud(name).getHydrator().getHydrationMillis();
+        }
+
+        public void refreshInventory() {
+            cloud(name).getInventory().refresh();
+        }
+
+        public void pauseProvisioning() {
+            LOGGER.info("Pausing provisioning of cloud " + name);
+            cloud(name).setProvisioningPaused(true);
+        }
+
+        public void resumeProvisioning() {
+            LOGGER.info("Resuming provisioning of cloud " + name);
+            cloud(name).setProvisioningPaused(false);
+        }
+    }
+
+    private static final class TemplateBean implements JCloudsTemplateMXBean {
+        private final String cloudName;
+        private final String name;
+
+        TemplateBean(String cloudName, String name) {
+            this.cloudName = cloudName;
+            this.name = name;
+        }
+
+        private JCloudsSlaveTemplate template() {
+            JCloudsSlaveTemplate template = cloud(cloudName).getTemplate(name);
+            if (template == null) {
+                throw new IllegalStateException("Template " + name + " of cloud " + cloudName + " no longer exists");
+            }
+            return template;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getCloudName() {
+            return cloudName;
+        }
+
+        public String getLabels() {
+            return template().labelString;
+        }
+
+        public int getNumExecutors() {
+            return template().getNumExecutors();
+        }
+
+        public int getSlaves() {
+            int count = 0;
+            for (Node node : Jenkins.getInstance().getNodes()) {
+                if (node instanceof JCloudsSlave) {
+                    JCloudsSlave slave = (JCloudsSlave) node;
+                    if (cloudName.equals(slave.getCloudName()) && name.equals(slave.getTemplateName())) {
+                        count++;
+                    }
+                }
+            }
+            return count;
+        }
+
+        public int getInFlightCreates() {
+            return template().getInFlightCreates();
+        }
+
+        public int getPoolMinIdle() {
+            return template().getPoolMinIdle();
+        }
+
+        public int getPoolMaxIdle() {
+            return template().getPoolMaxIdle();
+        }
+
+        public int getPooledNodes() {
+            return JCloudsPoolThread.getPool(template()).size();
+        }
+
+        public long getOnlineLatencyP95Millis() {
+            return PhaseTimings.of(cloudName, name).getHistogram(ProvisioningPhase.ONLINE).getPercentile(0.95);
+        }
+
+        public boolean isDraining() {
+            return template().isDraining();
+        }
+
+        public void drain() {
+            LOGGER.info("Draining template " + name + " of cloud " + cloudName);
+            template().setDraining(true);
+        }
+
+        public void undrain() {
+            LOGGER.info("No longer draining template " + name + " of cloud " + cloudName);
+            template().setDraining(false);
+        }
+    }
+}
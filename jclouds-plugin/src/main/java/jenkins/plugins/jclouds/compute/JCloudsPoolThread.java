@@ -0,0 +1,400 @@
+package jenkins.plugins.jclouds.compute;
+
+import java.io.File;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jclouds.compute.domain.NodeMetadata;
+
+import hudson.Extension;
+import hudson.Util;
+import hudson.init.InitMilestone;
+import hudson.init.Initializer;
+import hudson.init.Terminator;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.Label;
+import hudson.model.Node;
+import hudson.model.Queue;
+import hudson.model.TaskListener;
+import hudson.slaves.Cloud;
+import jenkins.model.Jenkins;
+import jenkins.plugins.jclouds.compute.internal.ApiOperation;
+import jenkins.plugins.jclouds.compute.internal.NodePool;
+import jenkins.plugins.jclouds.compute.internal.PoolJournal;
+
+/**
+ * Keeps the warm standby pools of the templates between their minimum and maximum idle size, and samples the queue
+ * for the demand history that sizes them.
+ * <p/>
+ * Pools are kept by cloud and template name rather than on the template itself, so that saving the configuration
+ * does not lose track of the nodes already waiting in them. The nodes the pools create are journaled on disk until
+ * they become slaves or are destroyed; at startup and on every run, journaled nodes nobody holds are put back into
+ * their pool or destroyed, so that a crash or a removed cloud doesn't leave them running.
+ */
+@Extension
+public final class JCloudsPoolThread extends AsyncPeriodicWork {
+    private static final Logger LOGGER = Logger.getLogger(JCloudsPoolThread.class.getName());
+
+    private static final ConcurrentMap<String, NodePool> POOLS = new ConcurrentHashMap<String, NodePool>();
+    // by cloud name
+    private static final ConcurrentMap<String, PoolJournal> JOURNALS = new ConcurrentHashMap<String, PoolJournal>();
+    // the last configuration of each cloud with a pool, which can still destroy its nodes once the cloud was removed
+    private static final ConcurrentMap<String, JCloudsCloud> CLOUDS = new ConcurrentHashMap<String, JCloudsCloud>();
+
+    // for templates that wait for phone home without a timeout of their own
+    private static final long PHONE_HOME_TIMEOUT_MILLIS = TimeUnit.MINUTES.toMillis(Integer.getInteger("jclouds.plugin.poolPhoneHomeTimeoutMin", 30));
+    // how long a taken node may take to become a slave before it counts as lost
+    private static final long HAND_OUT_MILLIS = TimeUnit.MINUTES.toMillis(Integer.getInteger("jclouds.plugin.poolHandOutMin", 60));
+
+    public JCloudsPoolThread() {
+        super("JClouds warm pool maintenance");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return MIN;
+    }
+
+    static NodePool getPool(JCloudsSlaveTemplate template) {
+        JCloudsCloud cloud = template.getCloud();
+        CLOUDS.put(cloud.name, cloud);
+        String key = key(cloud.name, template.name);
+        NodePool pool = POOLS.get(key);
+        if (pool == null) {
+            POOLS.putIfAbsent(key, new NodePool());
+            pool = POOLS.get(key);
+        }
+        return pool;
+    }
+
+    /**
+     * Makes the booting pooled node with the given hostname available, for a phone home no slave was waiting for.
+     *
+     * @return whether a booting pooled node has that hostname.
+     */
+    public static boolean phonedHome(String hostname) {
+        for (NodePool pool : POOLS.values()) {
+            if (pool.phonedHome(hostname)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Journals the nodes a refill created, before they enter the pool.
+     */
+    static void created(JCloudsSlaveTemplate template, List<NodeMetadata> nodes) {
+        PoolJournal journal = getJournal(template.getCloud().name);
+        for (NodeMetadata node : nodes) {
+            journal.add(template.name, node.getId());
+        }
+        save(journal);
+    }
+
+    /**
+     * Stops tracking a taken node that is owned by a build now rather than by a slave.
+     */
+    static void released(JCloudsSlaveTemplate template, NodeMetadata node) {
+        getPool(template).forget(node.getId());
+        getJournal(template.getCloud().name).remove(node.getId());
+    }
+
+    /**
+     * Destroys a taken node that can't be handed out, on the cloud's executor.
+     */
+    static void discard(JCloudsSlaveTemplate template, final NodeMetadata node) {
+        final JCloudsCloud cloud = template.getCloud();
+        try {
+            cloud.getExecutor().submit(new Runnable() {
+                public void run() {
+                    destroy(cloud, Collections.singletonList(node));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // no longer held, so the next run destroys it
+            LOGGER.warning(e.getMessage() + ", pooled node " + node.getId() + " is destroyed by the next warm pool maintenance");
+            getPool(template).forget(node.getId());
+        }
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        Set<String> live = new HashSet<String>();
+        for (Cloud c : Jenkins.getInstance().clouds) {
+            if (JCloudsCloud.class.isInstance(c)) {
+                final JCloudsCloud cloud = (JCloudsCloud) c;
+                Map<JCloudsSlaveTemplate, Integer> queued = countQueuedWorkload(cloud);
+                for (JCloudsSlaveTemplate template : cloud.getTemplates()) {
+                    live.add(key(cloud.name, template.name));
+                    try {
+                        template.recordDemand(queued.containsKey(template) ? queued.get(template) : 0);
+                        NodePool pool = getPool(template);
+                        destroy(cloud, pool.trim(template.getPoolMaxIdle()));
+                        long phoneHomeTimeout = template.waitPhoneHomeTimeout > 0
+                                ? TimeUnit.MINUTES.toMillis(template.waitPhoneHomeTimeout) : PHONE_HOME_TIMEOUT_MILLIS;
+                        destroy(cloud, pool.expireBooting(phoneHomeTimeout));
+                        template.refillPool();
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.WARNING, "Failed to maintain the warm pool of template " + template.name + ": " + e.getMessage());
+                    }
+                }
+                reclaim(cloud, true);
+                try {
+                    cloud.getDemandPredictor().save();
+                } catch (IOException e) {
+                    LOGGER.log(Level.WARNING, "Failed to save the demand history of cloud " + cloud.name, e);
+                }
+            }
+        }
+        // templates that were removed from the configuration
+        for (Map.Entry<String, NodePool> entry : POOLS.entrySet()) {
+            if (!live.contains(entry.getKey())) {
+                destroyPool(entry.getKey(), entry.getValue());
+            }
+        }
+        // clouds that were removed or renamed
+        for (JCloudsCloud cloud : CLOUDS.values()) {
+            if (JCloudsCloud.getByName(cloud.name) == null) {
+                // no one submits to it anymore, let it finish what it has
+                cloud.getExecutor().shutdown();
+                reclaim(cloud, false);
+                if (getJournal(cloud.name).isEmpty()) {
+                    CLOUDS.remove(cloud.name, cloud);
+                }
+            }
+        }
+    }
+
+    private static Map<JCloudsSlaveTemplate, Integer> countQueuedWorkload(JCloudsCloud cloud) {
+        Map<JCloudsSlaveTemplate, Integer> queued = new HashMap<JCloudsSlaveTemplate, Integer>();
+        for (Queue.BuildableItem item : Jenkins.getInstance().getQueue().getBuildableItems()) {
+            Label label = item.getAssignedLabel();
+            JCloudsSlaveTemplate template = label == null ? null : cloud.getTemplate(label);
+            if (template != null) {
+                queued.put(template, queued.containsKey(template) ? queued.get(template) + 1 : 1);
+            }
+        }
+        return queued;
+    }
+
+    /**
+     * Puts back or destroys the journaled nodes of the cloud that are neither pooled, being handed out nor a slave:
+     * nodes a previous run left behind, or that were lost on their way from a pool to a slave.
+     *
+     * @param adopt whether nodes may go back into the pools of the cloud's templates rather than be destroyed.
+     */
+    static void reclaim(JCloudsCloud cloud, boolean adopt) {
+        PoolJournal journal = getJournal(cloud.name);
+        if (journal.isEmpty()) {
+            return;
+        }
+        try {
+            Set<String> slaveNodeIds = new HashSet<String>();
+            for (Node node : Jenkins.getInstance().getNodes()) {
+                if (node instanceof JCloudsSlave) {
+                    slaveNodeIds.add(((JCloudsSlave) node).getNodeId());
+                }
+            }
+            List<NodeMetadata> lost = new ArrayList<NodeMetadata>();
+            for (Map.Entry<String, String> entry : journal.getNodes().entrySet()) {
+                String nodeId = entry.getKey();
+                NodePool pool = POOLS.get(key(cloud.name, entry.getValue()));
+                if (slaveNodeIds.contains(nodeId)) {
+                    journal.remove(nodeId);
+                    if (pool != null) {
+                        pool.forget(nodeId);
+                    }
+                    continue;
+                }
+                if (pool != null && pool.isHeld(nodeId, HAND_OUT_MILLIS)) {
+                    continue;
+                }
+                NodeMetadata node = cloud.getInventory().getNode(nodeId);
+                if (node == null) {
+                    journal.remove(nodeId);
+                    continue;
+                }
+                // nodes of templates that wait for phone home won't phone home again, they can't go back
+                JCloudsSlaveTemplate template = adopt ? cloud.getTemplate(entry.getValue()) : null;
+                if (template != null && !template.waitPhoneHome && node.getStatus() == NodeMetadata.Status.RUNNING) {
+                    pool = getPool(template);
+                    if (pool.size() + pool.getBooting() < template.getPoolMaxIdle()) {
+                        LOGGER.info("Putting node " + nodeId + " back into the warm pool of template " + template.name);
+                        pool.add(node);
+                        continue;
+                    }
+                }
+                lost.add(node);
+            }
+            if (!lost.isEmpty()) {
+                LOGGER.warning("Destroying " + lost.size() + " warm pool nodes of cloud " + cloud.name + " nobody holds");
+                destroy(cloud, lost);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.log(Level.WARNING, "Failed to reclaim the warm pool nodes of cloud " + cloud.name + ": " + e.getMessage());
+        }
+        save(journal);
+    }
+
+    /**
+     * Reclaims the pool nodes the previous run left behind, on each cloud's executor.
+     */
+    @Initializer(after = InitMilestone.JOB_LOADED)
+    public static void reclaimPools() {
+        Set<String> configured = new HashSet<String>();
+        for (Cloud c : Jenkins.getInstance().clouds) {
+            if (!(c instanceof JCloudsCloud)) {
+                continue;
+            }
+            final JCloudsCloud cloud = (JCloudsCloud) c;
+            configured.add(cloud.name);
+            try {
+                cloud.getExecutor().submit(new Runnable() {
+                    public void run() {
+                        reclaim(cloud, true);
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                LOGGER.warning(e.getMessage() + ", the warm pool nodes of cloud " + cloud.name + " are reclaimed by the next warm pool maintenance");
+            }
+        }
+        File[] files = new File(Jenkins.getInstance().getRootDir(), "jclouds").listFiles(new FilenameFilter() {
+            public boolean accept(File dir, String name) {
+                return name.startsWith("pool-") && name.endsWith(".txt");
+            }
+        });
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            try {
+                PoolJournal journal = PoolJournal.read(file);
+                if (!configured.contains(journal.getCloudName()) && !journal.isEmpty()) {
+                    // without the cloud there are no credentials to destroy them with
+                    LOGGER.warning("Cloud " + journal.getCloudName() + " is no longer configured, its warm pool nodes "
+                            + journal.getNodes().keySet() + " are left running");
+                }
+            } catch (IOException e) {
+                LOGGER.log(Level.WARNING, "Failed to read warm pool journal " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Destroys the pools of templates that are no longer configured. The other pools stay journaled and are put back
+     * by {@link #reclaimPools} at the next start, so that a restart neither throws the warm nodes away nor waits for
+     * their deletes.
+     */
+    @Terminator
+    public static void destroyUnconfiguredPools() {
+        Set<String> live = new HashSet<String>();
+        for (Cloud c : Jenkins.getInstance().clouds) {
+            if (c instanceof JCloudsCloud) {
+                for (JCloudsSlaveTemplate template : ((JCloudsCloud) c).getTemplates()) {
+                    live.add(key(c.name, template.name));
+                }
+            }
+        }
+        for (Map.Entry<String, NodePool> entry : POOLS.entrySet()) {
+            if (!live.contains(entry.getKey())) {
+                destroyPool(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    private static void destroyPool(String key, NodePool pool) {
+        List<NodeMetadata> nodes = pool.drain();
+        if (pool.getPending() == 0) {
+            POOLS.remove(key, pool);
+        }
+        if (nodes.isEmpty()) {
+            return;
+        }
+        String cloudName = key.substring(0, key.lastIndexOf('/'));
+        JCloudsCloud cloud = JCloudsCloud.getByName(cloudName);
+        if (cloud == null) {
+            // a removed or renamed cloud, its last configuration still has the credentials
+            cloud = CLOUDS.get(cloudName);
+        }
+        if (cloud == null) {
+            LOGGER.warning("Cloud of warm pool " + key + " no longer exists, leaving " + nodes.size() + " nodes running");
+            return;
+        }
+        destroy(cloud, nodes);
+    }
+
+    private static void destroy(JCloudsCloud cloud, List<NodeMetadata> nodes) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        PoolJournal journal = getJournal(cloud.name);
+        for (NodeMetadata node : nodes) {
+            try {
+                LOGGER.info("Destroying pooled node " + node.getId() + " of template " + node.getGroup());
+                cloud.acquirePermits(ApiOperation.DELETE, 1);
+                cloud.getCompute().destroyNode(node.getId());
+                cloud.getInventory().nodeRemoved(node.getId());
+                cloud.onNodeDestroyed(node.getGroup());
+                journal.remove(node.getId());
+                NodePool pool = POOLS.get(key(cloud.name, node.getGroup()));
+                if (pool != null) {
+                    pool.forget(node.getId());
+                }
+            } catch (CancellationException e) {
+                // the rest stay journaled and are reclaimed by a later run
+                LOGGER.warning(e.getMessage() + ", not destroying the remaining pooled nodes");
+                break;
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.WARNING, "Failed to destroy pooled node " + node.getId() + ": " + e.getMessage());
+            }
+        }
+        save(journal);
+    }
+
+    private static PoolJournal getJournal(String cloudName) {
+        PoolJournal journal = JOURNALS.get(cloudName);
+        if (journal == null) {
+            synchronized (JOURNALS) {
+                journal = JOURNALS.get(cloudName);
+                if (journal == null) {
+                    journal = new PoolJournal(cloudName, new File(Jenkins.getInstance().getRootDir(),
+                            "jclouds/pool-" + Util.rawEncode(cloudName) + ".txt"));
+                    try {
+                        journal.load();
+                    } catch (IOException e) {
+                        LOGGER.log(Level.WARNING, "Failed to load the warm pool journal of cloud " + cloudName, e);
+                    }
+                    JOURNALS.put(cloudName, journal);
+                }
+            }
+        }
+        return journal;
+    }
+
+    private static void save(PoolJournal journal) {
+        try {
+            journal.save();
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Failed to save the warm pool journal of cloud " + journal.getCloudName(), e);
+        }
+    }
+
+    private static String key(String cloudName, String templateName) {
+        return cloudName + "/" + templateName;
+    }
+}
@@ -0,0 +1,51 @@
+package jenkins.plugins.jclouds.compute;
+
+import java.util.logging.Level;
+
+import hudson.Extension;
+import hudson.model.AsyncPeriodicWork;
+import hudson.model.TaskListener;
+import hudson.slaves.Cloud;
+import jenkins.model.Jenkins;
+
+/**
+ * Keeps the cached state of every {@link JCloudsCloud} fresh in the background, so that the provisioning paths
+ * can read it without calling the provider.
+ */
+@Extension
+public final class JCloudsRefreshThread extends AsyncPeriodicWork {
+
+    public JCloudsRefreshThread() {
+        super("JClouds cloud state refresh");
+    }
+
+    @Override
+    public long getRecurrencePeriod() {
+        return MIN;
+    }
+
+    @Override
+    protected void execute(TaskListener listener) {
+        JCloudsMBeans.sync();
+        for (Cloud c : Jenkins.getInstance().clouds) {
+            if (JCloudsCloud.class.isInstance(c)) {
+                final JCloudsCloud cloud = (JCloudsCloud) c;
+                try {
+                    cloud.getInventory().refresh();
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Failed to refresh the node inventory of cloud " + cloud.name + ": " + e.getMessage());
+                }
+                try {
+                    cloud.refreshImageCatalog();
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Failed to refresh the image catalog of cloud " + cloud.name + ": " + e.getMessage());
+                }
+                try {
+                    cloud.reconcileQuota();
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Failed to reconcile the quota usage of cloud " + cloud.name + ": " + e.getMessage());
+                }
+            }
+        }
+    }
+}
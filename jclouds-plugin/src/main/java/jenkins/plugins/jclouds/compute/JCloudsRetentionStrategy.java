@@ -14,6 +14,7 @@ import hudson.slaves.RetentionStrategy;
 import hudson.tasks.Mailer;
 import hudson.util.TimeUnit2;
 import jenkins.model.Jenkins;
+import jenkins.plugins.jclouds.internal.Metrics;
 
 /**
  * @author Vijay Kiran
@@ -40,12 +41,15 @@ public class JCloudsRetentionStrategy extends RetentionStrategy<JCloudsComputer>
                     if (retentionTime > -1 && c.countExecutors() > 0) {
                         //final long idleMilliseconds = System.currentTimeMillis() - c.getIdleStartMilliseconds();
                         //if (idleMilliseconds > TimeUnit2.MINUTES.toMillis(retentionTime)) {
-                        if (c.getRemainRetentionTime() == 0) {
+                        if (c.getRemainRetentionTime() == 0 && isPoolFloor(jCloudsSlave)) {
+                            LOGGER.fine("Keeping " + c.getName() + " for the warm pool of its template.");
+                        } else if (c.getRemainRetentionTime() == 0) {
                             LOGGER.info("Setting " + c.getName() + " to be deleted.");
                             if (!c.isOffline()) {
                                 c.setTemporarilyOffline(true, OfflineCause.create(Messages._DeletedCause()));
                             }
                             jCloudsSlave.setPendingDelete(true);
+                            Metrics.RETENTION_EXPIRED.inc(jCloudsSlave.getCloudName());
                         }
                     }
                 }
@@ -94,6 +98,15 @@ public class JCloudsRetentionStrategy extends RetentionStrategy<JCloudsComputer>
         c.connect(false);
     }
 
+    private boolean isPoolFloor(JCloudsSlave jCloudsSlave) {
+        JCloudsCloud cloud = JCloudsCloud.getByName(jCloudsSlave.getCloudName());
+        if (cloud == null || jCloudsSlave.getTemplateName() == null || jCloudsSlave.isOfflineOsInstance()) {
+            return false;
+        }
+        JCloudsSlaveTemplate template = cloud.getTemplate(jCloudsSlave.getTemplateName());
+        return template != null && template.isPoolFloor();
+    }
+
     private String getUserNameFromNodeDescription(String nodeDescription) {
         if (nodeDescription.endsWith("-offline")) {
             String temp = nodeDescription.replace("-offline", "");
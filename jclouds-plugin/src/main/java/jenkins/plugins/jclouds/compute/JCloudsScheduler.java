@@ -0,0 +1,80 @@
+package jenkins.plugins.jclouds.compute;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import hudson.slaves.Cloud;
+import jenkins.model.Jenkins;
+
+/**
+ * Treats templates with the same labels on different clouds as one capacity pool, so that demand one cloud can't
+ * take spills over to the others.
+ * <p/>
+ * Clouds are ranked by instance headroom, discounted by their recent provisioning latency and their consecutive
+ * create failures. Other clouds without headroom or with an open circuit breaker are left out.
+ */
+final class JCloudsScheduler {
+    private static final boolean SPILL_OVER = Boolean.parseBoolean(System.getProperty("jclouds.plugin.spillOver", "true"));
+
+    private JCloudsScheduler() {
+    }
+
+    /**
+     * The templates to provision {@code template}'s demand from, best first. Without spill over, or when no other
+     * cloud has an equivalent template, that is just {@code template}.
+     */
+    static List<JCloudsSlaveTemplate> rank(JCloudsSlaveTemplate template) {
+        if (!SPILL_OVER) {
+            return Collections.singletonList(template);
+        }
+        List<JCloudsSlaveTemplate> candidates = new ArrayList<JCloudsSlaveTemplate>();
+        candidates.add(template);
+        for (Cloud c : Jenkins.getInstance().clouds) {
+            if (c instanceof JCloudsCloud && c != template.getCloud()) {
+                for (JCloudsSlaveTemplate other : ((JCloudsCloud) c).getTemplates()) {
+                    if (other.getLabelSet().equals(template.getLabelSet())) {
+                        candidates.add(other);
+                        break;
+                    }
+                }
+            }
+        }
+        if (candidates.size() == 1) {
+            return candidates;
+        }
+
+        final Map<JCloudsSlaveTemplate, Double> scores = new IdentityHashMap<JCloudsSlaveTemplate, Double>();
+        List<JCloudsSlaveTemplate> ranked = new ArrayList<JCloudsSlaveTemplate>();
+        for (JCloudsSlaveTemplate candidate : candidates) {
+            double score = score(candidate.getCloud());
+            // the asking cloud stays in, its warm pool may still serve the demand
+            if (score > 0 || candidate == template) {
+                ranked.add(candidate);
+                scores.put(candidate, score);
+            }
+        }
+        // stable, so ties keep the configured order with the asking cloud first
+        Collections.sort(ranked, new Comparator<JCloudsSlaveTemplate>() {
+            public int compare(JCloudsSlaveTemplate a, JCloudsSlaveTemplate b) {
+                return Double.compare(scores.get(b), scores.get(a));
+            }
+        });
+        return ranked;
+    }
+
+    static double score(JCloudsCloud cloud) {
+        if (cloud.getCircuitBreaker().isOpen()) {
+            return 0;
+        }
+        int headroom = cloud.getInstanceHeadroom();
+        if (headroom <= 0) {
+            return 0;
+        }
+        double latencyMinutes = cloud.getProvisioningLatency().getMillis() / 60000.0;
+        return headroom / ((1 + latencyMinutes) * (1 + cloud.getCircuitBreaker().getConsecutiveFailures()));
+    }
+}
@@ -119,7 +119,7 @@ public class JCloudsSingleUseSlaveBuildWrapper extends BuildWrapper {
             JCloudsUtility.setSlaveDescription(jcloudsSlave, nodeName);
         }
         JCloudsUtility.updateComputerList();
-        JCloudsUtility.saveNodesSettingToConfig();
+        JCloudsUtility.saveNodeSettingToConfig(jcloudsSlave);
     }
 
     private EnvVars getJenkinsEnv(AbstractBuild build) throws IOException, InterruptedException {
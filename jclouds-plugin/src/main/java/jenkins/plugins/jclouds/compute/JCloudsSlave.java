@@ -8,6 +8,7 @@ import java.util.logging.Logger;
 
 import org.jclouds.compute.ComputeService;
 import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
 import org.jclouds.domain.LoginCredentials;
 import org.kohsuke.stapler.DataBoundConstructor;
 
@@ -20,6 +21,10 @@ import hudson.slaves.ComputerLauncher;
 import hudson.slaves.NodeProperty;
 import hudson.slaves.RetentionStrategy;
 import hudson.util.TimeUnit2;
+import jenkins.plugins.jclouds.compute.internal.ApiOperation;
+import jenkins.plugins.jclouds.compute.internal.PhoneHomeSignal;
+import jenkins.plugins.jclouds.compute.internal.ProvisioningTimeline;
+import jenkins.util.Timer;
 
 /**
  * Jenkins Slave node - managed by JClouds.
@@ -29,9 +34,12 @@ import hudson.util.TimeUnit2;
 public class JCloudsSlave extends AbstractCloudSlave {
     private static final Logger LOGGER = Logger.getLogger(JCloudsSlave.class.getName());
     private transient NodeMetadata nodeMetaData;
+    private transient PhoneHomeSignal phoneHomeSignal;
     public final boolean stopOnTerminate;
     private final String cloudName;
     private String nodeId;
+    private String templateName;
+    private String hostname;
     private boolean pendingDelete;
     private boolean waitPhoneHome;
     //private final int overrideRetentionTime;
@@ -48,6 +56,7 @@ public class JCloudsSlave extends AbstractCloudSlave {
 
     private String publicIpAddress = "";
     private Boolean isEmailNotified = false;
+    private ProvisioningTimeline timeline = new ProvisioningTimeline();
 
     @DataBoundConstructor
     @SuppressWarnings("rawtypes")
@@ -97,6 +106,8 @@ public class JCloudsSlave extends AbstractCloudSlave {
                 metadata.getCredentials().shouldAuthenticateSudo(), jvmOptions, waitPhoneHome, waitPhoneHomeTimeout, credentialsId);
         this.nodeMetaData = metadata;
         this.nodeId = nodeMetaData.getId();
+        this.templateName = nodeMetaData.getGroup();
+        this.hostname = nodeMetaData.getHostname();
     }
 
     /**
@@ -106,8 +117,13 @@ public class JCloudsSlave extends AbstractCloudSlave {
      */
     public NodeMetadata getNodeMetaData() {
         if (this.nodeMetaData == null) {
-            final ComputeService compute = JCloudsCloud.getByName(cloudName).getCompute();
-            this.nodeMetaData = compute.getNodeMetadata(nodeId);
+            final JCloudsCloud cloud = JCloudsCloud.getByName(cloudName);
+            // after a restart, one listing loads the metadata of all slaves of the cloud
+            NodeMetadata node = cloud.getHydrator().take(nodeId);
+            if (node == null) {
+                node = cloud.getCompute().getNodeMetadata(nodeId);
+            }
+            this.nodeMetaData = node;
         }
         return nodeMetaData;
     }
@@ -154,7 +170,7 @@ public class JCloudsSlave extends AbstractCloudSlave {
 
     public void setOverrideRetentionTime(int overrideRetentionTime) {
         this.overrideRetentionTime = overrideRetentionTime;
-        JCloudsUtility.saveNodesSettingToConfig();
+        JCloudsUtility.saveNodeSettingToConfig(this);
     }
 
     public long getTerminatedMillTime() {
@@ -168,9 +184,9 @@ public class JCloudsSlave extends AbstractCloudSlave {
         Long idleTime = System.currentTimeMillis() - getComputer().getIdleStartMilliseconds();
         Long idleMinTime = TimeUnit2.MILLISECONDS.toMinutes(idleTime);
         Long extendMinTime = TimeUnit2.MILLISECONDS.toMinutes(extendTime);
-        setOverrideRetentionTime(idleMinTime.intValue() + extendMinTime.intValue());
+        this.overrideRetentionTime = idleMinTime.intValue() + extendMinTime.intValue();
         isEmailNotified = false;
-        JCloudsUtility.saveNodesSettingToConfig();
+        JCloudsUtility.saveNodeSettingToConfig(this);
     }
 
     public String getRetentionDay() {
@@ -227,7 +243,7 @@ public class JCloudsSlave extends AbstractCloudSlave {
 
     public void setIsEmailNotified(Boolean isEmailNotified) {
         this.isEmailNotified = isEmailNotified;
-        JCloudsUtility.saveNodesSettingToConfig();
+        JCloudsUtility.saveNodeSettingToConfig(this);
     }
 
     public Boolean isOfflineOsInstance() {
@@ -238,6 +254,45 @@ public class JCloudsSlave extends AbstractCloudSlave {
         return getTerminatedMillTime() < System.currentTimeMillis();
     }
 
+    /**
+     * When the steps of bringing up this slave happened.
+     */
+    public ProvisioningTimeline getTimeline() {
+        return timeline;
+    }
+
+    @Override
+    protected Object readResolve() {
+        if (timeline == null) {
+            // slaves saved before timelines were recorded
+            timeline = new ProvisioningTimeline();
+        }
+        return super.readResolve();
+    }
+
+    /**
+     * Get the name of the template this slave was created from, {@code null} for slaves created by older versions.
+     *
+     * @return templateName
+     */
+    public String getTemplateName() {
+        return templateName;
+    }
+
+    /**
+     * Get the hostname the slave phones home with, {@code null} for slaves created by older versions until it is
+     * learned from the node metadata.
+     *
+     * @return hostname
+     */
+    public String getHostname() {
+        return hostname;
+    }
+
+    void setHostname(String hostname) {
+        this.hostname = hostname;
+    }
+
     public String getNodeId() {
         return nodeId;
     }
@@ -257,6 +312,13 @@ public class JCloudsSlave extends AbstractCloudSlave {
 
     public void setPendingDelete(boolean pendingDelete) {
         this.pendingDelete = pendingDelete;
+        if (pendingDelete) {
+            synchronized (this) {
+                if (phoneHomeSignal != null) {
+                    phoneHomeSignal.abort("wait for phone home interrupted by delete request");
+                }
+            }
+        }
     }
 
     public boolean isWaitPhoneHome() {
@@ -264,7 +326,17 @@ public class JCloudsSlave extends AbstractCloudSlave {
     }
 
     public void setWaitPhoneHome(boolean value) {
+        if (waitPhoneHome && !value) {
+            timeline.record(ProvisioningTimeline.Event.PHONED_HOME);
+        }
         waitPhoneHome = value;
+        if (!value) {
+            synchronized (this) {
+                if (phoneHomeSignal != null) {
+                    phoneHomeSignal.signal();
+                }
+            }
+        }
     }
 
     public long getWaitPhoneHomeTimeoutMs() {
@@ -309,14 +381,24 @@ public class JCloudsSlave extends AbstractCloudSlave {
      */
     @Override
     protected void _terminate(TaskListener listener) throws IOException, InterruptedException {
-        final ComputeService compute = JCloudsCloud.getByName(cloudName).getCompute();
-        if (compute.getNodeMetadata(nodeId) != null && compute.getNodeMetadata(nodeId).getStatus().equals(NodeMetadata.Status.RUNNING)) {
+        final JCloudsCloud cloud = JCloudsCloud.getByName(cloudName);
+        final ComputeService compute = cloud.getCompute();
+        NodeMetadata node = cloud.getInventory().getNode(nodeId);
+        if (node == null || !node.getStatus().equals(NodeMetadata.Status.RUNNING)) {
+            // the snapshot may lag behind the provider, ask before giving up on the node
+            node = compute.getNodeMetadata(nodeId);
+        }
+        if (node != null && node.getStatus().equals(NodeMetadata.Status.RUNNING)) {
             if (stopOnTerminate) {
                 LOGGER.info("Suspending the Slave : " + getNodeName());
                 compute.suspendNode(nodeId);
+                cloud.getInventory().nodeChanged(NodeMetadataBuilder.fromNodeMetadata(node).status(NodeMetadata.Status.SUSPENDED).build());
             } else {
                 LOGGER.info("Terminating the Slave : " + getNodeName());
+                cloud.getRateLimiter(ApiOperation.DELETE).acquire(1);
                 compute.destroyNode(nodeId);
+                cloud.getInventory().nodeRemoved(nodeId);
+                cloud.onNodeDestroyed(node.getGroup());
             }
         } else {
             LOGGER.info("Slave " + getNodeName() + " is already not running.");
@@ -324,27 +406,30 @@ public class JCloudsSlave extends AbstractCloudSlave {
     }
 
     public void waitForPhoneHome(PrintStream logger) throws InterruptedException {
-        long timeout = System.currentTimeMillis() + getWaitPhoneHomeTimeoutMs();
-        while (true) {
-            long tdif = timeout - System.currentTimeMillis();
-            if (tdif < 0) {
-                throw new InterruptedException("wait for phone home timed out");
-            }
-            if (isPendingDelete()) {
-                throw new InterruptedException("wait for phone home interrupted by delete request");
-            }
-            if (isWaitPhoneHome()) {
-                final String msg = "Waiting for slave to phone home. " + tdif / 1000 + " seconds until timeout.";
-                if (null != logger) {
-                    logger.println(msg);
-                } else {
-                    LOGGER.info(msg);
-                }
-                Thread.sleep(30000);
+        PhoneHomeSignal signal = getPhoneHomeSignal();
+        if (isPendingDelete()) {
+            throw new InterruptedException("wait for phone home interrupted by delete request");
+        }
+        if (isWaitPhoneHome()) {
+            final String msg = "Waiting for slave to phone home. " + getWaitPhoneHomeTimeoutMs() / 1000 + " seconds until timeout.";
+            if (null != logger) {
+                logger.println(msg);
             } else {
-                break;
+                LOGGER.info(msg);
             }
+            signal.await();
+        }
+    }
+
+    /**
+     * The signal of the current wait for phone home; a wait that timed out or was aborted starts over with a new one.
+     */
+    private synchronized PhoneHomeSignal getPhoneHomeSignal() {
+        if (phoneHomeSignal == null || phoneHomeSignal.isFailed()) {
+            phoneHomeSignal = new PhoneHomeSignal();
+            phoneHomeSignal.timeoutAfter(Timer.get(), getWaitPhoneHomeTimeoutMs());
         }
+        return phoneHomeSignal;
     }
 
     public String getPublicIpAddress() {
@@ -4,9 +4,16 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.lang.reflect.Method;
 import java.util.ArrayList;
-import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -54,19 +61,33 @@ import hudson.model.labels.LabelAtom;
 import hudson.plugins.sshslaves.SSHLauncher;
 import hudson.security.ACL;
 import hudson.security.AccessControlled;
+import hudson.util.DaemonThreadFactory;
 import hudson.util.FormValidation;
 import hudson.util.ListBoxModel;
+import hudson.util.NamingThreadFactory;
 import hudson.util.Secret;
 import jenkins.model.Jenkins;
+import jenkins.plugins.jclouds.compute.internal.ApiOperation;
+import jenkins.plugins.jclouds.compute.internal.CircuitBreaker;
+import jenkins.plugins.jclouds.compute.internal.CircuitOpenException;
+import jenkins.plugins.jclouds.compute.internal.ComputeContextPool;
+import jenkins.plugins.jclouds.compute.internal.ComputeMetadataCache;
+import jenkins.plugins.jclouds.compute.internal.NodePool;
+import jenkins.plugins.jclouds.compute.internal.PhaseTimings;
+import jenkins.plugins.jclouds.compute.internal.ProvisioningPhase;
+import jenkins.plugins.jclouds.compute.internal.ProvisioningTimeline;
+import jenkins.plugins.jclouds.compute.internal.QuotaExceededException;
+import jenkins.plugins.jclouds.compute.internal.QuotaLedger;
+import jenkins.plugins.jclouds.compute.internal.RateLimiter;
+import shaded.com.google.common.base.Function;
 import shaded.com.google.common.base.Strings;
 import shaded.com.google.common.base.Supplier;
+import shaded.com.google.common.collect.ImmutableList;
 import shaded.com.google.common.collect.ImmutableMap;
 
-import static java.util.Collections.sort;
 import static org.jclouds.scriptbuilder.domain.Statements.newStatementList;
 import static shaded.com.google.common.base.Throwables.propagate;
 import static shaded.com.google.common.collect.Iterables.getOnlyElement;
-import static shaded.com.google.common.collect.Lists.newArrayList;
 
 /**
  * @author Vijay Kiran
@@ -75,6 +96,8 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
 
     private static final Logger LOGGER = Logger.getLogger(JCloudsSlaveTemplate.class.getName());
     private static final char SEPARATOR_CHAR = ',';
+    private static final long TEMPLATE_CACHE_TTL_MILLIS = TimeUnit.MINUTES.toMillis(Integer.getInteger("jclouds.plugin.templateCacheTtlMin", 60));
+    private static final long DEMAND_LEAD_MILLIS = TimeUnit.MINUTES.toMillis(Integer.getInteger("jclouds.plugin.demandLeadMin", 15));
 
     public final String name;
     public final String imageId;
@@ -102,7 +125,6 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
     public final boolean installPrivateKey;
     public final int overrideRetentionTime;
     public final int spoolDelayMs;
-    private final Object delayLockObject = new Object();
     public final boolean assignFloatingIp;
     public final String floatingIpPoolName;
     public final String networkRangeFloatingIpAssociated;
@@ -113,8 +135,16 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
     public final String networks;
     public final String securityGroups;
     public final String credentialsId;
+    public final int poolMinIdle;
+    public final int poolMaxIdle;
 
     private transient Set<LabelAtom> labelSet;
+    private transient volatile ResolvedIds resolvedIds;
+    // the catalog image the last failed create used, not pinned again until the template cache expires
+    private transient volatile FailedImage failedImage;
+    private transient RateLimiter spoolLimiter;
+    private transient AtomicInteger inFlightCreates;
+    private transient volatile boolean draining;
 
     protected transient JCloudsCloud cloud;
 
@@ -126,7 +156,8 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
                                 final String fsRoot, final boolean allowSudo, final boolean installPrivateKey, final int overrideRetentionTime, final int spoolDelayMs,
                                 final boolean assignFloatingIp, final String floatingIpPoolName, final String networkRangeFloatingIpAssociated,
                                 final boolean waitPhoneHome, final int waitPhoneHomeTimeout, final String keyPairName,
-                                final boolean assignPublicIp, final String networks, final String securityGroups, final String credentialsId) {
+                                final boolean assignPublicIp, final String networks, final String securityGroups, final String credentialsId,
+                                final int poolMinIdle, final int poolMaxIdle) {
 
         this.name = Util.fixEmptyAndTrim(name);
         this.imageId = Util.fixEmptyAndTrim(imageId);
@@ -162,6 +193,8 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
         this.networks = networks;
         this.securityGroups = securityGroups;
         this.credentialsId = credentialsId;
+        this.poolMinIdle = poolMinIdle;
+        this.poolMaxIdle = poolMaxIdle;
         jenkinsUser = (null == credentialsId) ? "" : SSHLauncher.lookupSystemCredentials(credentialsId).getUsername();
         this.vmPassword = Util.fixEmptyAndTrim(vmPassword);
         this.vmUser = Util.fixEmptyAndTrim(vmUser);
@@ -177,6 +210,11 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
      */
     protected Object readResolve() {
         labelSet = Label.parse(labelString);
+        inFlightCreates = new AtomicInteger();
+        if (spoolDelayMs > 0) {
+            // (JENKINS-15970) space out the creates of this template by spoolDelayMs
+            spoolLimiter = new RateLimiter(1000.0 / spoolDelayMs, 1);
+        }
         return this;
     }
 
@@ -212,9 +250,56 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
         return labelSet;
     }
 
+    public int getPoolMinIdle() {
+        return Math.max(poolMinIdle, 0);
+    }
+
+    public int getPoolMaxIdle() {
+        return Math.max(poolMaxIdle, getPoolMinIdle());
+    }
+
     public JCloudsSlave provisionSlave(TaskListener listener) throws IOException {
-        NodeMetadata nodeMetadata = get();
+        long requestedAt = System.currentTimeMillis();
+        NodeMetadata pooled = takePooledNode();
+        if (pooled != null) {
+            JCloudsSlave slave = newSlave(pooled, false);
+            slave.getTimeline().recordAt(ProvisioningTimeline.Event.REQUESTED, requestedAt);
+            return slave;
+        }
+        NodeMetadata node = createNode();
+        return newSlave(node, requestedAt, System.currentTimeMillis());
+    }
+
+    /**
+     * Wraps a node this template just created into a slave, starting its timeline with the request and the create.
+     *
+     * @param requestedAt when the node was planned.
+     * @param acceptedAt  when the provider returned the created node.
+     */
+    JCloudsSlave newSlave(NodeMetadata nodeMetadata, long requestedAt, long acceptedAt) throws IOException {
+        JCloudsSlave slave = newSlave(nodeMetadata);
+        ProvisioningTimeline timeline = slave.getTimeline();
+        timeline.recordAt(ProvisioningTimeline.Event.REQUESTED, requestedAt);
+        timeline.recordAt(ProvisioningTimeline.Event.API_ACCEPTED, acceptedAt);
+        if (nodeMetadata.getStatus() == NodeMetadata.Status.RUNNING) {
+            // jclouds blocks the create until the node runs, unless the provider says otherwise
+            timeline.recordAt(ProvisioningTimeline.Event.RUNNING, acceptedAt);
+        }
+        return slave;
+    }
+
+    /**
+     * Wraps a node created from this template into a slave.
+     */
+    public JCloudsSlave newSlave(NodeMetadata nodeMetadata) throws IOException {
+        return newSlave(nodeMetadata, waitPhoneHome);
+    }
 
+    /**
+     * Wraps a node created from this template into a slave. Pooled nodes are only handed out once they phoned home,
+     * so their slaves must not wait for it.
+     */
+    public JCloudsSlave newSlave(NodeMetadata nodeMetadata, boolean waitPhoneHome) throws IOException {
         try {
             return new JCloudsSlave(getCloud().getDisplayName(), getFsRoot(), nodeMetadata, labelString, description,
                     numExecutors, stopOnTerminate, overrideRetentionTime, getJvmOptions(), waitPhoneHome,
@@ -226,40 +311,343 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
 
     @Override
     public NodeMetadata get() {
+        NodeMetadata pooled = takePooledNode();
+        if (pooled != null) {
+            // the build owns the node now and destroys it once done
+            JCloudsPoolThread.released(this, pooled);
+            return pooled;
+        }
+        return createNode();
+    }
+
+    private NodeMetadata createNode() {
         LOGGER.info("Provisioning new jclouds node");
+        QuotaLedger.Reservation reservation = getCloud().reserveQuota(this);
+        if (reservation == null) {
+            throw new QuotaExceededException("A new node of template " + name + " would exceed the quota of cloud "
+                    + getCloud().getDisplayName());
+        }
+        return getOnlyElement(createNodes(ImmutableList.of(reservation)));
+    }
+
+    /**
+     * Takes a ready node out of the warm pool of this template and starts refilling the pool in the background.
+     *
+     * @return the node, or {@code null} if the pool is empty.
+     */
+    public NodeMetadata takePooledNode() {
+        if (getPoolMaxIdle() == 0) {
+            return null;
+        }
+        NodePool pool = JCloudsPoolThread.getPool(this);
+        NodeMetadata node;
+        while ((node = pool.take()) != null) {
+            NodeMetadata known = getCloud().getInventory().getNode(node.getId());
+            if (known != null && known.getStatus() == NodeMetadata.Status.RUNNING) {
+                LOGGER.info("Handing out pooled node " + node.getId() + " of template " + name);
+                break;
+            }
+            LOGGER.info("Dropping pooled node " + node.getId() + " of template " + name + ", it is no longer running");
+            JCloudsPoolThread.discard(this, node);
+        }
+        refillPool();
+        return node;
+    }
+
+    /**
+     * Starts the nodes the warm pool is missing in the background, within the instance cap and the tenant quota.
+     * Idle slaves of this template count towards the pool, whose target follows the demand history.
+     */
+    void refillPool() {
+        if (draining || getCloud().isProvisioningPaused()) {
+            return;
+        }
+        final NodePool pool = JCloudsPoolThread.getPool(this);
+        int claimed = pool.claim(getPoolTarget() - countSlaves(true));
+        if (claimed == 0) {
+            return;
+        }
+        final List<QuotaLedger.Reservation> reservations = new ArrayList<QuotaLedger.Reservation>();
+        try {
+            int headroom = getCloud().getInstanceHeadroom();
+            while (reservations.size() < Math.min(claimed, headroom)) {
+                QuotaLedger.Reservation reservation = getCloud().reserveQuota(this);
+                if (reservation == null) {
+                    break;
+                }
+                reservations.add(reservation);
+            }
+        } finally {
+            pool.release(claimed - reservations.size());
+        }
+        if (reservations.isEmpty()) {
+            return;
+        }
+        try {
+            getCloud().getExecutor().submit(new Runnable() {
+                public void run() {
+                    try {
+                        LOGGER.info("Refilling warm pool of template " + name + " with " + reservations.size() + " nodes");
+                        List<NodeMetadata> nodes = createNodes(reservations);
+                        JCloudsPoolThread.created(JCloudsSlaveTemplate.this, nodes);
+                        for (NodeMetadata node : nodes) {
+                            if (waitPhoneHome) {
+                                // not ready until its init script is done
+                                pool.addBooting(node);
+                            } else {
+                                pool.add(node);
+                            }
+                        }
+                    } catch (RuntimeException e) {
+                        LOGGER.log(Level.WARNING, "Failed to refill warm pool of template " + name + ": " + e.getMessage());
+                    } finally {
+                        pool.release(reservations.size());
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            LOGGER.warning(e.getMessage() + ", not refilling warm pool of template " + name);
+            for (QuotaLedger.Reservation reservation : reservations) {
+                reservation.release();
+            }
+            pool.release(reservations.size());
+        }
+    }
+
+    /**
+     * The nodes of this template being created right now.
+     */
+    public int getInFlightCreates() {
+        return inFlightCreates.get();
+    }
+
+    /**
+     * Whether an operator stopped this template from starting nodes. Its existing slaves stay until their retention
+     * time is up.
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    public void setDraining(boolean draining) {
+        this.draining = draining;
+    }
+
+    /**
+     * Whether the idle slave should be kept rather than deleted, because the warm pool is at or below its floor.
+     */
+    public boolean isPoolFloor() {
+        int target = getPoolTarget();
+        return target > 0 && JCloudsPoolThread.getPool(this).size() + countSlaves(true) <= target;
+    }
+
+    /**
+     * Target size of the warm pool: the configured minimum, raised towards the maximum when the demand history
+     * expects more nodes than this template has busy slaves.
+     */
+    int getPoolTarget() {
+        int target = getPoolMinIdle();
+        if (getPoolMaxIdle() > target) {
+            int predicted = getCloud().getDemandPredictor().predict(name, System.currentTimeMillis(), DEMAND_LEAD_MILLIS);
+            target = Math.max(target, Math.min(getPoolMaxIdle(), predicted - countSlaves(false)));
+        }
+        return target;
+    }
+
+    /**
+     * Records the current demand of this template, its busy slaves plus the nodes the queued workload needs, for
+     * the demand history.
+     */
+    void recordDemand(int queuedWorkload) {
+        if (getPoolMaxIdle() == 0) {
+            return;
+        }
+        int numExecutors = getNumExecutors();
+        int demand = countSlaves(false) + (queuedWorkload + numExecutors - 1) / numExecutors;
+        getCloud().getDemandPredictor().record(name, System.currentTimeMillis(), demand);
+    }
+
+    private int countSlaves(boolean idle) {
+        if (getPoolMaxIdle() == 0) {
+            return 0;
+        }
+        int count = 0;
+        for (Computer c : Jenkins.getInstance().getComputers()) {
+            if (JCloudsComputer.class.isInstance(c) && c.isOnline() && c.isIdle() == idle) {
+                JCloudsSlave slave = ((JCloudsComputer) c).getNode();
+                if (slave != null && !slave.isPendingDelete() && getCloud().name.equals(slave.getCloudName())
+                        && name.equals(slave.getTemplateName())) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Creates one node per quota reservation with a single API call, resolving the template only once.
+     * <p/>
+     * Nodes that failed to start are destroyed. The nodes that did start are returned, so the result may hold fewer
+     * nodes than reservations; if none started, the failure is propagated. Reservations are committed for the nodes
+     * that started and released for the rest. While the cloud's circuit breaker is open a {@link CircuitOpenException}
+     * is thrown without calling the provider.
+     */
+    public List<NodeMetadata> createNodes(List<QuotaLedger.Reservation> reservations) {
+        int count = reservations.size();
+        List<NodeMetadata> nodes = ImmutableList.of();
+        CircuitBreaker breaker = getCloud().getCircuitBreaker();
+        inFlightCreates.addAndGet(count);
+        try {
+            if (!breaker.tryAcquire()) {
+                throw new CircuitOpenException("Creates on cloud " + getCloud().getDisplayName() + " keep failing, not creating nodes of template " + name);
+            }
+            try {
+                PhaseTimings timings = PhaseTimings.of(getCloud().name, name);
+                long startedAt = System.currentTimeMillis();
+                Template template = buildTemplate();
+                timings.record(ProvisioningPhase.RESOLVE, startedAt);
+
+                if (spoolLimiter != null) {
+                    try {
+                        spoolLimiter.acquire(count);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new CancellationException("Interrupted while spooling the creates of template " + name);
+                    }
+                }
+                getCloud().acquirePermits(ApiOperation.CREATE, count);
+                startedAt = System.currentTimeMillis();
+                try {
+                    nodes = ImmutableList.<NodeMetadata>copyOf(getCloud().getCompute().createNodesInGroup(name, count, template));
+                    timings.record(ProvisioningPhase.CREATE, startedAt);
+                } catch (RunNodesException e) {
+                    timings.record(ProvisioningPhase.CREATE, startedAt);
+                    nodes = ImmutableList.<NodeMetadata>copyOf(destroyBadNodes(e));
+                    if (nodes.isEmpty()) {
+                        failedImage = new FailedImage(template.getImage().getId(), System.currentTimeMillis());
+                        throw propagate(e);
+                    }
+                    LOGGER.warning("Only " + nodes.size() + " of " + count + " nodes started for template " + name + ": " + e.getMessage());
+                }
+            } catch (CancellationException e) {
+                // not a failure of the provider
+                throw e;
+            } catch (RuntimeException e) {
+                // the image or hardware may be gone, resolve them again next time
+                resolvedIds = null;
+                breaker.onFailure();
+                throw e;
+            }
+            breaker.onSuccess();
+            for (NodeMetadata nodeMetadata : nodes) {
+                getCloud().getInventory().nodeChanged(nodeMetadata);
+            }
+        } finally {
+            inFlightCreates.addAndGet(-count);
+            for (int i = 0; i < count; i++) {
+                if (i < nodes.size()) {
+                    reservations.get(i).commit();
+                } else {
+                    reservations.get(i).release();
+                }
+            }
+        }
+        return nodes;
+    }
+
+    /**
+     * Builds the jclouds template of this template. The image, hardware and location it resolves to are kept, so later
+     * builds skip the search over the provider's catalogs until the cache expires or a create fails. Templates that
+     * pick their image by name regex use the newest match of the cloud's image catalog, unless a create with that
+     * image just failed or the provider doesn't know it; jclouds then matches the regex itself.
+     */
+    Template buildTemplate() {
+        return buildTemplate(true);
+    }
+
+    /**
+     * What the last full resolution of this template found, or null if the next build resolves it again.
+     */
+    ResolvedIds getResolvedIds() {
+        return resolvedIds;
+    }
+
+    private Template buildTemplate(boolean useResolvedIds) {
         ImmutableMap<String, String> userMetadata = ImmutableMap.of("Name", name);
         ComputeService computeService = getCloud().getCompute();
-        computeService.listImages();
         TemplateBuilder templateBuilder = computeService.templateBuilder();
-        if (!Strings.isNullOrEmpty(imageId)) {
-            LOGGER.info("Setting image id to " + imageId);
-            templateBuilder.imageId(imageId);
-        } else if (!Strings.isNullOrEmpty(imageNameRegex)) {
-            LOGGER.info("Setting image name regex to " + imageNameRegex);
-            templateBuilder.imageNameMatches(imageNameRegex);
+        long now = System.currentTimeMillis();
+        ResolvedIds ids = useResolvedIds ? resolvedIds : null;
+        String newestImageId = null;
+        if (Strings.isNullOrEmpty(imageId) && !Strings.isNullOrEmpty(imageNameRegex)) {
+            newestImageId = getCloud().getImageCatalog().getNewestMatch(imageNameRegex);
+            FailedImage failed = failedImage;
+            if (newestImageId != null && failed != null && failed.imageId.equals(newestImageId)
+                    && now - failed.failedAt < TEMPLATE_CACHE_TTL_MILLIS) {
+                newestImageId = null;
+            }
+        }
+        if (ids != null && now - ids.resolvedAt < TEMPLATE_CACHE_TTL_MILLIS
+                && (newestImageId == null || newestImageId.equals(ids.imageId))) {
+            templateBuilder.imageId(ids.imageId).hardwareId(ids.hardwareId);
+            if (ids.locationId != null) {
+                templateBuilder.locationId(ids.locationId);
+            }
         } else {
-            if (!Strings.isNullOrEmpty(osFamily)) {
-                LOGGER.info("Setting osFamily to " + osFamily);
-                templateBuilder.osFamily(OsFamily.fromValue(osFamily));
+            ids = null;
+            if (!Strings.isNullOrEmpty(imageId)) {
+                LOGGER.info("Setting image id to " + imageId);
+                templateBuilder.imageId(imageId);
+            } else if (newestImageId != null) {
+                LOGGER.info("Setting image id to " + newestImageId + ", the newest image matching " + imageNameRegex);
+                templateBuilder.imageId(newestImageId);
+            } else if (!Strings.isNullOrEmpty(imageNameRegex)) {
+                LOGGER.info("Setting image name regex to " + imageNameRegex);
+                templateBuilder.imageNameMatches(imageNameRegex);
+            } else {
+                if (!Strings.isNullOrEmpty(osFamily)) {
+                    LOGGER.info("Setting osFamily to " + osFamily);
+                    templateBuilder.osFamily(OsFamily.fromValue(osFamily));
+                }
+                if (!Strings.isNullOrEmpty(osVersion)) {
+                    LOGGER.info("Setting osVersion to " + osVersion);
+                    templateBuilder.osVersionMatches(osVersion);
+                }
+            }
+            if (!Strings.isNullOrEmpty((hardwareId))) {
+                LOGGER.info("Setting hardware Id to " + hardwareId);
+                templateBuilder.hardwareId(hardwareId);
+            } else {
+                LOGGER.info("Setting minRam " + ram + " and minCores " + cores);
+                templateBuilder.minCores(cores).minRam(ram);
             }
-            if (!Strings.isNullOrEmpty(osVersion)) {
-                LOGGER.info("Setting osVersion to " + osVersion);
-                templateBuilder.osVersionMatches(osVersion);
+            if (!Strings.isNullOrEmpty(locationId)) {
+                LOGGER.info("Setting location Id to " + locationId);
+                templateBuilder.locationId(locationId);
             }
         }
-        if (!Strings.isNullOrEmpty((hardwareId))) {
-            LOGGER.info("Setting hardware Id to " + hardwareId);
-            templateBuilder.hardwareId(hardwareId);
-        } else {
-            LOGGER.info("Setting minRam " + ram + " and minCores " + cores);
-            templateBuilder.minCores(cores).minRam(ram);
+
+        Template template;
+        try {
+            template = templateBuilder.build();
+        } catch (RuntimeException e) {
+            if (ids != null) {
+                // the provider no longer knows what we resolved before
+                LOGGER.warning("Resolved image " + ids.imageId + " of template " + name + " can't be used: " + e.getMessage());
+                resolvedIds = null;
+                return buildTemplate(false);
+            }
+            if (newestImageId == null) {
+                throw e;
+            }
+            // the catalog is older than the provider's image list
+            LOGGER.warning("Image " + newestImageId + ", the newest image matching " + imageNameRegex + ", can't be used: " + e.getMessage());
+            failedImage = new FailedImage(newestImageId, now);
+            return buildTemplate(false);
         }
-        if (!Strings.isNullOrEmpty(locationId)) {
-            LOGGER.info("Setting location Id to " + locationId);
-            templateBuilder.locationId(locationId);
+        if (ids == null) {
+            resolvedIds = new ResolvedIds(template, now);
         }
-
-        Template template = templateBuilder.build();
         TemplateOptions options = template.getOptions();
 
         if (!Strings.isNullOrEmpty(networks)) {
@@ -315,17 +703,6 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
             options.overrideLoginCredentials(lc);
         }
 
-        if (spoolDelayMs > 0) {
-            // (JENKINS-15970) Add optional delay before spooling. Author: Adam Rofer
-            synchronized (delayLockObject) {
-                LOGGER.info("Delaying " + spoolDelayMs + " milliseconds. Current ms -> " + System.currentTimeMillis());
-                try {
-                    Thread.sleep(spoolDelayMs);
-                } catch (InterruptedException e) {
-                }
-            }
-        }
-
         Statement initStatement = null;
         Statement bootstrap = null;
 
@@ -374,23 +751,21 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
             }
         }
 
-        NodeMetadata nodeMetadata = null;
-
-        try {
-            nodeMetadata = getOnlyElement(getCloud().getCompute().createNodesInGroup(name, 1, template));
-        } catch (RunNodesException e) {
-            throw destroyBadNodesAndPropagate(e);
-        }
-
-        // Check if nodeMetadata is null and throw
-        return nodeMetadata;
+        return template;
     }
 
-    private RuntimeException destroyBadNodesAndPropagate(RunNodesException e) {
+    private Set<? extends NodeMetadata> destroyBadNodes(RunNodesException e) {
         for (Map.Entry<? extends NodeMetadata, ? extends Throwable> nodeError : e.getNodeErrors().entrySet()) {
+            try {
+                getCloud().acquirePermits(ApiOperation.DELETE, 1);
+            } catch (CancellationException cancelled) {
+                // still hand back the nodes that did start
+                LOGGER.warning(cancelled.getMessage() + ", not destroying the failed nodes of template " + name);
+                break;
+            }
             getCloud().getCompute().destroyNode(nodeError.getKey().getId());
         }
-        throw propagate(e);
+        return e.getSuccessfulNodes();
     }
 
     private static String[] csvToArray(final String csv) {
@@ -411,6 +786,24 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
 
     @Extension
     public static final class DescriptorImpl extends Descriptor<JCloudsSlaveTemplate> {
+        private static final ComputeMetadataCache METADATA = new ComputeMetadataCache(
+                new Function<ComputeMetadataCache.Account, ComputeContextPool.Lease>() {
+                    public ComputeContextPool.Lease apply(ComputeMetadataCache.Account account) {
+                        return JCloudsCloud.lease(account.providerName, account.identity, account.credential, account.endPointUrl, account.zones);
+                    }
+                }, newMetadataRefreshExecutor(), TimeUnit.MINUTES.toMillis(Integer.getInteger("jclouds.plugin.metadataRefreshMin", 5)),
+                TimeUnit.MINUTES.toMillis(Integer.getInteger("jclouds.plugin.metadataExpireMin", 60)));
+
+        /**
+         * Two threads of its own for the form data reloads, so that slow provider listings don't hold the remoting
+         * threads agent connections need.
+         */
+        private static ExecutorService newMetadataRefreshExecutor() {
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(2, 2, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(),
+                    new NamingThreadFactory(new DaemonThreadFactory(), "JClouds metadata refresh"));
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
+        }
 
         @Override
         public String getDisplayName() {
@@ -544,16 +937,7 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
             credential = Secret.fromString(credential).getPlainText();
             endPointUrl = Util.fixEmptyAndTrim(endPointUrl);
             zones = Util.fixEmptyAndTrim(zones);
-            ComputeService computeService = null;
-
-            try {
-                computeService = JCloudsCloud.ctx(providerName, identity, credential, endPointUrl, zones).getComputeService();
-                return computeService.listImages();
-            } finally {
-                if (computeService != null) {
-                    computeService.getContext().close();
-                }
-            }
+            return METADATA.getImages(new ComputeMetadataCache.Account(providerName, identity, credential, endPointUrl, zones));
         }
 
         public ListBoxModel doFillHardwareIdItems(@RelativePath("..") @QueryParameter String providerName, @RelativePath("..") @QueryParameter String identity,
@@ -581,24 +965,13 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
             credential = Secret.fromString(credential).getPlainText();
             endPointUrl = Util.fixEmptyAndTrim(endPointUrl);
 
-            ComputeService computeService = null;
             m.add("None specified", "");
             try {
-                // TODO: endpoint is ignored
-                computeService = JCloudsCloud.ctx(providerName, identity, credential, endPointUrl, zones).getComputeService();
-
-                ArrayList<Hardware> hws = newArrayList(computeService.listHardwareProfiles());
-                sort(hws);
-
-                for (Hardware hardware : hws) {
+                for (Hardware hardware : METADATA.getHardwareProfiles(new ComputeMetadataCache.Account(providerName, identity, credential, endPointUrl, zones))) {
                     m.add(String.format("%s (%s)", hardware.getId(), hardware.getName()), hardware.getId());
                 }
             } catch (Exception ex) {
                 LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
-            } finally {
-                if (computeService != null) {
-                    computeService.getContext().close();
-                }
             }
 
             return m;
@@ -629,11 +1002,8 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
             zones = Util.fixEmptyAndTrim(zones);
 
             FormValidation result = FormValidation.error("Invalid Hardware Id, please check the value and try again.");
-            ComputeService computeService = null;
             try {
-                // TODO: endpoint is ignored
-                computeService = JCloudsCloud.ctx(providerName, identity, credential, endPointUrl, zones).getComputeService();
-                Set<? extends Hardware> hardwareProfiles = computeService.listHardwareProfiles();
+                List<Hardware> hardwareProfiles = METADATA.getHardwareProfiles(new ComputeMetadataCache.Account(providerName, identity, credential, endPointUrl, zones));
                 for (Hardware hardware : hardwareProfiles) {
                     if (!hardware.getId().equals(hardwareId)) {
                         if (hardware.getId().contains(hardwareId)) {
@@ -646,10 +1016,6 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
 
             } catch (Exception ex) {
                 result = FormValidation.error("Unable to check the hardware id, " + "please check if the credentials you provided are correct.", ex);
-            } finally {
-                if (computeService != null) {
-                    computeService.getContext().close();
-                }
             }
             return result;
         }
@@ -679,29 +1045,13 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
             credential = Secret.fromString(credential).getPlainText();
             endPointUrl = Util.fixEmptyAndTrim(endPointUrl);
 
-            ComputeService computeService = null;
             m.add("None specified", "");
             try {
-                // TODO: endpoint is ignored
-                computeService = JCloudsCloud.ctx(providerName, identity, credential, endPointUrl, zones).getComputeService();
-
-                ArrayList<Location> locations = newArrayList(computeService.listAssignableLocations());
-                sort(locations, new Comparator<Location>() {
-                    @Override
-                    public int compare(Location o1, Location o2) {
-                        return o1.getId().compareTo(o2.getId());
-                    }
-                });
-
-                for (Location location : locations) {
+                for (Location location : METADATA.getLocations(new ComputeMetadataCache.Account(providerName, identity, credential, endPointUrl, zones))) {
                     m.add(String.format("%s (%s)", location.getId(), location.getDescription()), location.getId());
                 }
             } catch (Exception ex) {
                 LOGGER.log(Level.SEVERE, ex.getMessage(), ex);
-            } finally {
-                if (computeService != null) {
-                    computeService.getContext().close();
-                }
             }
 
             return m;
@@ -742,11 +1092,8 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
             zones = Util.fixEmptyAndTrim(zones);
 
             FormValidation result = FormValidation.error("Invalid Location Id, please check the value and try again.");
-            ComputeService computeService = null;
             try {
-                // TODO: endpoint is ignored
-                computeService = JCloudsCloud.ctx(providerName, identity, credential, endPointUrl, zones).getComputeService();
-                Set<? extends Location> locations = computeService.listAssignableLocations();
+                List<Location> locations = METADATA.getLocations(new ComputeMetadataCache.Account(providerName, identity, credential, endPointUrl, zones));
                 for (Location location : locations) {
                     if (!location.getId().equals(locationId)) {
                         if (location.getId().contains(locationId)) {
@@ -759,10 +1106,6 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
 
             } catch (Exception ex) {
                 result = FormValidation.error("Unable to check the location id, " + "please check if the credentials you provided are correct.", ex);
-            } finally {
-                if (computeService != null) {
-                    computeService.getContext().close();
-                }
             }
             return result;
         }
@@ -781,4 +1124,34 @@ public class JCloudsSlaveTemplate implements Describable<JCloudsSlaveTemplate>,
             return FormValidation.validateNonNegativeInteger(value);
         }
     }
+
+    /**
+     * Image, hardware and location a template resolved to.
+     */
+    static final class ResolvedIds {
+        final String imageId;
+        final String hardwareId;
+        final String locationId;
+        final long resolvedAt;
+
+        ResolvedIds(Template template, long resolvedAt) {
+            this.imageId = template.getImage().getId();
+            this.hardwareId = template.getHardware().getId();
+            this.locationId = template.getLocation() == null ? null : template.getLocation().getId();
+            this.resolvedAt = resolvedAt;
+        }
+    }
+
+    /**
+     * Image a create failed with.
+     */
+    private static final class FailedImage {
+        final String imageId;
+        final long failedAt;
+
+        FailedImage(String imageId, long failedAt) {
+            this.imageId = imageId;
+            this.failedAt = failedAt;
+        }
+    }
 }
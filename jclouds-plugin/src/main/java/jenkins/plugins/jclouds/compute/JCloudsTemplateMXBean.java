@@ -0,0 +1,42 @@
+package jenkins.plugins.jclouds.compute;
+
+/**
+ * Live state of a {@link JCloudsSlaveTemplate}, registered as
+ * {@code jenkins.plugins.jclouds:type=Template,cloud=<cloud>,name=<template>}.
+ * <p/>
+ * Attributes are read from cached state and never call the provider.
+ */
+public interface JCloudsTemplateMXBean {
+
+    String getName();
+
+    String getCloudName();
+
+    String getLabels();
+
+    int getNumExecutors();
+
+    int getSlaves();
+
+    int getInFlightCreates();
+
+    int getPoolMinIdle();
+
+    int getPoolMaxIdle();
+
+    int getPooledNodes();
+
+    /**
+     * The 95th percentile of the time from planning a node to its slave coming online.
+     */
+    long getOnlineLatencyP95Millis();
+
+    boolean isDraining();
+
+    /**
+     * Stops the template from starting nodes; its slaves stay until their retention time is up.
+     */
+    void drain();
+
+    void undrain();
+}
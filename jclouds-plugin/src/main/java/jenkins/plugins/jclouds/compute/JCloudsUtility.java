@@ -19,11 +19,15 @@ import javax.mail.internet.AddressException;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeMessage;
 
+import hudson.init.Terminator;
+import hudson.model.Node;
 import hudson.model.User;
 import hudson.tasks.Mailer;
 import hudson.util.ReflectionUtils;
 import jenkins.model.Jenkins;
 import jenkins.model.JenkinsLocationConfiguration;
+import jenkins.plugins.jclouds.compute.internal.DebouncedSaver;
+import jenkins.util.Timer;
 
 /**
  * Class for some jenkins utilities by reflection
@@ -46,16 +50,26 @@ public class JCloudsUtility {
         return user.getFullName().toLowerCase();
     }
 
+    private static final DebouncedSaver<Node> NODE_SAVER = new DebouncedSaver<Node>(new DebouncedSaver.Store<Node>() {
+        public void save(Node node) throws IOException {
+            Jenkins.getInstance().updateNode(node);
+        }
+    }, Timer.get(), Long.getLong("jclouds.plugin.nodeSaveWindowMs", 5000));
+
     /**
-     * Save jenkins nodes setting to the config.xml
+     * Saves the configuration of the node a little later, together with its other changes in the meantime. Only this
+     * node's configuration is written.
      */
-    public static void saveNodesSettingToConfig() {
-        try {
-            // renew the node list
-            Jenkins.getInstance().setNodes(Jenkins.getInstance().getNodes());
-        } catch (IOException e) {
-            LOGGER.log(Level.SEVERE, "Failed saving to config file", e);
-        }
+    public static void saveNodeSettingToConfig(Node node) {
+        NODE_SAVER.markDirty(node);
+    }
+
+    /**
+     * Writes the node configurations still waiting to be saved, so that shutting down loses none of them.
+     */
+    @Terminator
+    public static void flushNodeSettings() {
+        NODE_SAVER.flush();
     }
 
     /**
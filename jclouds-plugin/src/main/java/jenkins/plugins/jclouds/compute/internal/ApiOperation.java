@@ -0,0 +1,30 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.Locale;
+
+/**
+ * Classes of provider API calls that are rate limited separately, each with its own rate and burst.
+ * <p/>
+ * Limits are set with the {@code jclouds.plugin.<operation>RatePerSec} and {@code jclouds.plugin.<operation>Burst}
+ * system properties, e.g. {@code jclouds.plugin.createRatePerSec}; a rate of 0 disables the limit.
+ */
+public enum ApiOperation {
+    CREATE(2, 10),
+    DELETE(2, 10),
+    LIST(1, 5),
+    QUOTA(1, 5);
+
+    private final double defaultRate;
+    private final int defaultBurst;
+
+    ApiOperation(double defaultRate, int defaultBurst) {
+        this.defaultRate = defaultRate;
+        this.defaultBurst = defaultBurst;
+    }
+
+    public RateLimiter newRateLimiter() {
+        String prefix = "jclouds.plugin." + name().toLowerCase(Locale.ENGLISH);
+        double rate = Double.parseDouble(System.getProperty(prefix + "RatePerSec", String.valueOf(defaultRate)));
+        return new RateLimiter(rate, Integer.getInteger(prefix + "Burst", defaultBurst));
+    }
+}
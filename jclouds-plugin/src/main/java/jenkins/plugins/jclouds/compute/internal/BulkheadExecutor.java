@@ -0,0 +1,47 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import hudson.util.DaemonThreadFactory;
+import hudson.util.NamingThreadFactory;
+
+/**
+ * Runs the provisioning work of one cloud on its own bounded set of threads, so that a slow provider can only hold up
+ * its own work and not the remoting threads agent connections need.
+ * <p/>
+ * Threads are named after the cloud and time out when idle. Work beyond the queue depth is rejected with a
+ * {@link RejectedExecutionException} and counted.
+ */
+public class BulkheadExecutor extends ThreadPoolExecutor {
+    private final String cloudName;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public BulkheadExecutor(String cloudName, int threads, int queueDepth) {
+        super(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<Runnable>(Math.max(queueDepth, 1)),
+                new NamingThreadFactory(new DaemonThreadFactory(), "JClouds provisioning [" + cloudName + "]"));
+        this.cloudName = cloudName;
+        allowCoreThreadTimeOut(true);
+        setRejectedExecutionHandler(new RejectedExecutionHandler() {
+            public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+                rejected.incrementAndGet();
+                throw new RejectedExecutionException("Provisioning queue of cloud " + BulkheadExecutor.this.cloudName + " is full");
+            }
+        });
+    }
+
+    /**
+     * Tasks refused since the executor was created, because the queue was full or the executor shut down.
+     */
+    public long getRejectedCount() {
+        return rejected.get();
+    }
+
+    public int getQueueDepth() {
+        return getQueue().size();
+    }
+}
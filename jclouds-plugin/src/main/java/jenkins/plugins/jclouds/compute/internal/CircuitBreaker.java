@@ -0,0 +1,69 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+/**
+ * Stops node creation on a cloud after repeated failures.
+ * <p/>
+ * After {@code failureThreshold} consecutive failures the breaker opens and refuses creates. Once
+ * {@code openMillis} passed, a single create is let through as a probe; its success closes the breaker, its failure
+ * keeps it open for another period. A probe that never reports back only holds the breaker for one period.
+ */
+public class CircuitBreaker {
+    private final int failureThreshold;
+    private final long openMillis;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean open;
+
+    public CircuitBreaker(int failureThreshold, long openMillis) {
+        this.failureThreshold = Math.max(failureThreshold, 1);
+        this.openMillis = openMillis;
+    }
+
+    /**
+     * Whether creates are refused right now, without taking the probe.
+     */
+    public synchronized boolean isOpen() {
+        return open && System.currentTimeMillis() - openedAt < openMillis;
+    }
+
+    /**
+     * Whether the open period is over and the next create is the probe. Only that one create is let through, so no
+     * more should be started until it reports back.
+     */
+    public synchronized boolean isHalfOpen() {
+        return open && System.currentTimeMillis() - openedAt >= openMillis;
+    }
+
+    /**
+     * Whether a create may go ahead. When the open period is over this takes the probe, so concurrent callers are
+     * refused until the next period.
+     */
+    public synchronized boolean tryAcquire() {
+        if (!open) {
+            return true;
+        }
+        long now = System.currentTimeMillis();
+        if (now - openedAt < openMillis) {
+            return false;
+        }
+        openedAt = now;
+        return true;
+    }
+
+    public synchronized void onSuccess() {
+        consecutiveFailures = 0;
+        open = false;
+    }
+
+    public synchronized void onFailure() {
+        consecutiveFailures++;
+        if (open || consecutiveFailures >= failureThreshold) {
+            open = true;
+            openedAt = System.currentTimeMillis();
+        }
+    }
+
+    public synchronized int getConsecutiveFailures() {
+        return consecutiveFailures;
+    }
+}
@@ -0,0 +1,12 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+/**
+ * Thrown instead of calling the provider while the circuit breaker of the cloud is open.
+ */
+public class CircuitOpenException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public CircuitOpenException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,199 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.io.Closeable;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+
+import org.jclouds.compute.ComputeServiceContext;
+
+import hudson.Util;
+import shaded.com.google.common.base.Supplier;
+
+/**
+ * Compute contexts shared by everything that talks to the same account, keyed by provider, identity, credential
+ * digest and overrides (endpoint, zones, timeouts).
+ * <p/>
+ * Form validation and fill methods take a {@link Lease} for the duration of the call and close it when done. Clouds
+ * take a lease owned by themselves, which is held for as long as the cloud is reachable. A context without open leases
+ * is closed once it was idle for a while, or as soon as the pool grows beyond its size.
+ */
+public class ComputeContextPool {
+    private static final Logger LOGGER = Logger.getLogger(ComputeContextPool.class.getName());
+
+    private static final ComputeContextPool INSTANCE = new ComputeContextPool(
+            Integer.getInteger("jclouds.plugin.contextPoolSize", 16),
+            TimeUnit.MINUTES.toMillis(Integer.getInteger("jclouds.plugin.contextIdleMin", 10)));
+
+    private final int maxSize;
+    private final long maxIdleMillis;
+    // access order, so iteration starts with the least recently used context
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    public ComputeContextPool(int maxSize, long maxIdleMillis) {
+        this.maxSize = maxSize;
+        this.maxIdleMillis = maxIdleMillis;
+    }
+
+    public static ComputeContextPool get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Leases the context of the given account, building it with {@code factory} unless the pool has it already.
+     *
+     * @param owner the object holding the lease until it is garbage collected, or {@code null} for a lease that is
+     *              closed explicitly.
+     */
+    public Lease acquire(Object owner, String providerName, String identity, String credential, Properties overrides,
+            Supplier<ComputeServiceContext> factory) {
+        String key = key(providerName, identity, credential, overrides);
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry == null) {
+                entry = new Entry();
+                entries.put(key, entry);
+            }
+            entry.retain(owner);
+            evict();
+        }
+        try {
+            return new Lease(entry, owner, entry.getContext(factory));
+        } catch (RuntimeException e) {
+            release(entry, owner);
+            throw e;
+        }
+    }
+
+    /**
+     * Closes the contexts without leases that were idle for too long.
+     */
+    public synchronized void evict() {
+        long now = System.currentTimeMillis();
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext(); ) {
+            Entry entry = it.next();
+            if (!entry.isInUse() && (entries.size() > maxSize || now - entry.lastUsed > maxIdleMillis)) {
+                it.remove();
+                entry.close();
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void release(Entry entry, Object owner) {
+        entry.release(owner);
+        evict();
+    }
+
+    private static String key(String providerName, String identity, String credential, Properties overrides) {
+        StringBuilder key = new StringBuilder();
+        key.append(providerName).append('\n').append(identity).append('\n').append(digest(credential));
+        for (Map.Entry<Object, Object> override : new TreeMap<Object, Object>(overrides).entrySet()) {
+            key.append('\n').append(override.getKey()).append('=').append(override.getValue());
+        }
+        return key.toString();
+    }
+
+    private static String digest(String credential) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return Util.toHexString(digest.digest(String.valueOf(credential).getBytes(Charset.forName("UTF-8"))));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * A use of a pooled context. Closing it returns the context to the pool, it never closes the context itself.
+     */
+    public final class Lease implements Closeable {
+        private final Entry entry;
+        private final Object owner;
+        private final ComputeServiceContext context;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(Entry entry, Object owner, ComputeServiceContext context) {
+            this.entry = entry;
+            this.owner = owner;
+            this.context = context;
+        }
+
+        public ComputeServiceContext getContext() {
+            return context;
+        }
+
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(entry, owner);
+            }
+        }
+    }
+
+    /**
+     * Guarded by the pool, except for the context which is built and closed under the entry's own lock so that a slow
+     * provider doesn't block the other accounts.
+     */
+    private static final class Entry {
+        private final Set<Object> owners = Collections.newSetFromMap(new WeakHashMap<Object, Boolean>());
+        private int leases;
+        private long lastUsed = System.currentTimeMillis();
+        private ComputeServiceContext context;
+        private boolean closed;
+
+        void retain(Object owner) {
+            if (owner != null) {
+                owners.add(owner);
+            } else {
+                leases++;
+            }
+            lastUsed = System.currentTimeMillis();
+        }
+
+        void release(Object owner) {
+            if (owner != null) {
+                owners.remove(owner);
+            } else {
+                leases--;
+            }
+            lastUsed = System.currentTimeMillis();
+        }
+
+        boolean isInUse() {
+            return leases > 0 || !owners.isEmpty();
+        }
+
+        synchronized ComputeServiceContext getContext(Supplier<ComputeServiceContext> factory) {
+            if (closed) {
+                throw new IllegalStateException("Compute context was evicted");
+            }
+            if (context == null) {
+                context = factory.get();
+            }
+            return context;
+        }
+
+        synchronized void close() {
+            closed = true;
+            if (context != null) {
+                LOGGER.fine("Closing idle compute context " + context);
+                context.close();
+                context = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.compute.domain.Hardware;
+import org.jclouds.compute.domain.Image;
+import org.jclouds.domain.Location;
+
+import shaded.com.google.common.base.Function;
+import shaded.com.google.common.base.Objects;
+import shaded.com.google.common.cache.CacheBuilder;
+import shaded.com.google.common.cache.CacheLoader;
+import shaded.com.google.common.cache.LoadingCache;
+
+/**
+ * Hardware profiles, locations and images of the accounts used in configuration forms.
+ * <p/>
+ * A listing is loaded once per account and served from memory afterwards. Once it is older than the refresh interval
+ * the next read still returns it, while a background reload replaces it. Listings nobody reads expire.
+ */
+public class ComputeMetadataCache {
+    private final LoadingCache<Account, List<Hardware>> hardwareProfiles;
+    private final LoadingCache<Account, List<Location>> locations;
+    private final LoadingCache<Account, Set<? extends Image>> images;
+
+    /**
+     * @param leases   leases the context of an account, the cache closes the lease after each listing.
+     * @param executor runs the background reloads.
+     */
+    public ComputeMetadataCache(final Function<Account, ComputeContextPool.Lease> leases, Executor executor, long refreshMillis,
+            long expireMillis) {
+        hardwareProfiles = build(new CacheLoader<Account, List<Hardware>>() {
+            @Override
+            public List<Hardware> load(Account account) {
+                ComputeContextPool.Lease lease = leases.apply(account);
+                try {
+                    List<Hardware> sorted = new ArrayList<Hardware>(lease.getContext().getComputeService().listHardwareProfiles());
+                    Collections.sort(sorted);
+                    return Collections.unmodifiableList(sorted);
+                } finally {
+                    lease.close();
+                }
+            }
+        }, executor, refreshMillis, expireMillis);
+        locations = build(new CacheLoader<Account, List<Location>>() {
+            @Override
+            public List<Location> load(Account account) {
+                ComputeContextPool.Lease lease = leases.apply(account);
+                try {
+                    List<Location> sorted = new ArrayList<Location>(lease.getContext().getComputeService().listAssignableLocations());
+                    Collections.sort(sorted, new Comparator<Location>() {
+                        @Override
+                        public int compare(Location o1, Location o2) {
+                            return o1.getId().compareTo(o2.getId());
+                        }
+                    });
+                    return Collections.unmodifiableList(sorted);
+                } finally {
+                    lease.close();
+                }
+            }
+        }, executor, refreshMillis, expireMillis);
+        images = build(new CacheLoader<Account, Set<? extends Image>>() {
+            @Override
+            public Set<? extends Image> load(Account account) {
+                ComputeContextPool.Lease lease = leases.apply(account);
+                try {
+                    return lease.getContext().getComputeService().listImages();
+                } finally {
+                    lease.close();
+                }
+            }
+        }, executor, refreshMillis, expireMillis);
+    }
+
+    private static <V> LoadingCache<Account, V> build(CacheLoader<Account, V> loader, Executor executor, long refreshMillis,
+            long expireMillis) {
+        return CacheBuilder.newBuilder().refreshAfterWrite(refreshMillis, TimeUnit.MILLISECONDS)
+                .expireAfterAccess(expireMillis, TimeUnit.MILLISECONDS).build(CacheLoader.asyncReloading(loader, executor));
+    }
+
+    /**
+     * Hardware profiles of the account, sorted.
+     */
+    public List<Hardware> getHardwareProfiles(Account account) {
+        return hardwareProfiles.getUnchecked(account);
+    }
+
+    /**
+     * Assignable locations of the account, sorted by id.
+     */
+    public List<Location> getLocations(Account account) {
+        return locations.getUnchecked(account);
+    }
+
+    public Set<? extends Image> getImages(Account account) {
+        return images.getUnchecked(account);
+    }
+
+    /**
+     * The connection parameters of a configuration form.
+     */
+    public static final class Account {
+        public final String providerName;
+        public final String identity;
+        public final String credential;
+        public final String endPointUrl;
+        public final String zones;
+
+        public Account(String providerName, String identity, String credential, String endPointUrl, String zones) {
+            this.providerName = providerName;
+            this.identity = identity;
+            this.credential = credential;
+            this.endPointUrl = endPointUrl;
+            this.zones = zones;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Account)) {
+                return false;
+            }
+            Account that = (Account) o;
+            return Objects.equal(providerName, that.providerName) && Objects.equal(identity, that.identity)
+                    && Objects.equal(credential, that.credential) && Objects.equal(endPointUrl, that.endPointUrl)
+                    && Objects.equal(zones, that.zones);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(providerName, identity, credential, endPointUrl, zones);
+        }
+    }
+}
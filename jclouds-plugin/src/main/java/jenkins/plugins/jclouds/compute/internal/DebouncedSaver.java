@@ -0,0 +1,81 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Write-behind saving of objects that change in bursts.
+ * <p/>
+ * Marking an object dirty schedules a flush {@code windowMillis} later, unless one is scheduled already, so all changes
+ * made within the window are written with one save per object. An object changed while it is being saved is saved
+ * again by the next flush. A window of 0 or less saves right away.
+ */
+public class DebouncedSaver<T> {
+    private static final Logger LOGGER = Logger.getLogger(DebouncedSaver.class.getName());
+
+    /**
+     * Writes one object.
+     */
+    public interface Store<T> {
+        void save(T item) throws IOException;
+    }
+
+    private final Store<T> store;
+    private final ScheduledExecutorService timer;
+    private final long windowMillis;
+    private final Set<T> dirty = Collections.newSetFromMap(new ConcurrentHashMap<T, Boolean>());
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    public DebouncedSaver(Store<T> store, ScheduledExecutorService timer, long windowMillis) {
+        this.store = store;
+        this.timer = timer;
+        this.windowMillis = windowMillis;
+    }
+
+    public void markDirty(T item) {
+        if (windowMillis <= 0) {
+            save(item);
+            return;
+        }
+        dirty.add(item);
+        if (scheduled.compareAndSet(false, true)) {
+            timer.schedule(new Runnable() {
+                public void run() {
+                    scheduled.set(false);
+                    flush();
+                }
+            }, windowMillis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Saves everything marked dirty now, on the calling thread.
+     */
+    public void flush() {
+        for (Iterator<T> it = dirty.iterator(); it.hasNext(); ) {
+            T item = it.next();
+            it.remove();
+            save(item);
+        }
+    }
+
+    public int getPending() {
+        return dirty.size();
+    }
+
+    private void save(T item) {
+        try {
+            store.save(item);
+        } catch (IOException e) {
+            LOGGER.log(Level.SEVERE, "Failed saving " + item, e);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Learns the node demand of each template by hour of the week, so that capacity can be started before the queue
+ * builds up.
+ * <p/>
+ * Within an hour only the peak demand is kept. When the hour is over the peak is folded into an exponentially
+ * weighted average for that hour of the week, so one week of history weighs {@link #ALPHA} and older weeks fade out.
+ * The history is stored in a small binary file: a header, then per template its name, the open hour and its peak,
+ * and one float per hour of the week.
+ */
+public class DemandPredictor {
+    public static final int BUCKETS = 7 * 24;
+    static final float ALPHA = 0.3f;
+
+    private static final int MAGIC = 0x4a434450;
+    private static final int VERSION = 1;
+
+    private final File file;
+    private final ConcurrentMap<String, History> histories = new ConcurrentHashMap<String, History>();
+    private volatile boolean dirty;
+
+    /**
+     * @param file where the history is stored, or {@code null} to keep it in memory only.
+     */
+    public DemandPredictor(File file) {
+        this.file = file;
+    }
+
+    /**
+     * Records the demand, in nodes, seen for the template at the given time.
+     */
+    public void record(String key, long time, int demand) {
+        History history = histories.get(key);
+        if (history == null) {
+            histories.putIfAbsent(key, new History());
+            history = histories.get(key);
+        }
+        history.record(bucket(time), demand);
+        dirty = true;
+    }
+
+    /**
+     * The number of nodes the template is expected to need from {@code time} until {@code leadMillis} later.
+     */
+    public int predict(String key, long time, long leadMillis) {
+        History history = histories.get(key);
+        if (history == null) {
+            return 0;
+        }
+        return Math.max(history.predict(bucket(time)), history.predict(bucket(time + leadMillis)));
+    }
+
+    public void load() throws IOException {
+        if (file == null || !file.exists()) {
+            return;
+        }
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unknown demand history format in " + file);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String key = in.readUTF();
+                History history = new History();
+                history.bucket = in.readInt();
+                history.peak = in.readInt();
+                for (int b = 0; b < BUCKETS; b++) {
+                    history.average[b] = in.readFloat();
+                }
+                histories.put(key, history);
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Writes the history if it changed since it was last written.
+     */
+    public void save() throws IOException {
+        if (file == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create " + dir);
+        }
+        File tmp = new File(dir, file.getName() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            Map<String, History> snapshot = new HashMap<String, History>(histories);
+            out.writeInt(snapshot.size());
+            for (Map.Entry<String, History> entry : snapshot.entrySet()) {
+                out.writeUTF(entry.getKey());
+                entry.getValue().write(out);
+            }
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            dirty = true;
+            throw new IOException("Failed to replace " + file);
+        }
+    }
+
+    static int bucket(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        return (calendar.get(Calendar.DAY_OF_WEEK) - Calendar.SUNDAY) * 24 + calendar.get(Calendar.HOUR_OF_DAY);
+    }
+
+    private static class History {
+        // NaN until the hour was seen once
+        final float[] average = new float[BUCKETS];
+        int bucket = -1;
+        int peak;
+
+        History() {
+            Arrays.fill(average, Float.NaN);
+        }
+
+        synchronized void record(int b, int demand) {
+            if (b != bucket) {
+                fold();
+                bucket = b;
+                peak = 0;
+            }
+            peak = Math.max(peak, demand);
+        }
+
+        synchronized int predict(int b) {
+            float value = average[b];
+            return Float.isNaN(value) ? 0 : (int) Math.ceil(value - 0.01f);
+        }
+
+        synchronized void write(DataOutputStream out) throws IOException {
+            out.writeInt(bucket);
+            out.writeInt(peak);
+            for (float value : average) {
+                out.writeFloat(value);
+            }
+        }
+
+        private void fold() {
+            if (bucket < 0) {
+                return;
+            }
+            float value = average[bucket];
+            average[bucket] = Float.isNaN(value) ? peak : ALPHA * peak + (1 - ALPHA) * value;
+        }
+    }
+}
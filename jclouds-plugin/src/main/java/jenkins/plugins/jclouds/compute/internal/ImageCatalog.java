@@ -0,0 +1,140 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+import org.jclouds.compute.domain.Image;
+
+import shaded.com.google.common.base.Optional;
+
+/**
+ * Images of one cloud ordered by name, refreshed in the background, with the newest image matching each name regex
+ * computed once per refresh.
+ * <p/>
+ * Golden images are published with increasing names (dates, build numbers), so the newest match is the match with
+ * the greatest name. Names are compared in natural order, digits by their numeric value, so that {@code golden-10}
+ * is newer than {@code golden-9}; images with the same name are told apart by id. All templates of a cloud pick up a
+ * newly published image with the same refresh.
+ */
+public class ImageCatalog {
+    /**
+     * Orders images newest first: by name in natural order, then by id.
+     */
+    static final Comparator<Image> NEWEST_FIRST = new Comparator<Image>() {
+        public int compare(Image a, Image b) {
+            int byName = compareNatural(b.getName(), a.getName());
+            return byName != 0 ? byName : b.getId().compareTo(a.getId());
+        }
+    };
+
+    private volatile List<Image> newestFirst;
+    private volatile ConcurrentMap<String, Optional<String>> newestByRegex = new ConcurrentHashMap<String, Optional<String>>();
+
+    /**
+     * Replaces the catalog and computes the newest match of the given regexes up front.
+     */
+    public void refresh(Iterable<? extends Image> images, Iterable<String> regexes) {
+        List<Image> named = new ArrayList<Image>();
+        for (Image image : images) {
+            if (image.getName() != null) {
+                named.add(image);
+            }
+        }
+        Collections.sort(named, NEWEST_FIRST);
+        ConcurrentMap<String, Optional<String>> newest = new ConcurrentHashMap<String, Optional<String>>();
+        for (String regex : regexes) {
+            newest.put(regex, Optional.fromNullable(findNewest(named, regex)));
+        }
+        newestFirst = named;
+        newestByRegex = newest;
+    }
+
+    /**
+     * The id of the newest image whose name matches the regex.
+     *
+     * @return the image id, or {@code null} if no image matches or the catalog was not loaded yet.
+     */
+    public String getNewestMatch(String regex) {
+        List<Image> images = newestFirst;
+        if (images == null) {
+            return null;
+        }
+        ConcurrentMap<String, Optional<String>> newest = newestByRegex;
+        Optional<String> match = newest.get(regex);
+        if (match == null) {
+            // a template added since the last refresh
+            match = Optional.fromNullable(findNewest(images, regex));
+            newest.putIfAbsent(regex, match);
+        }
+        return match.orNull();
+    }
+
+    private static String findNewest(List<Image> newestFirst, String regex) {
+        Pattern pattern = Pattern.compile(regex);
+        for (Image image : newestFirst) {
+            if (pattern.matcher(image.getName()).matches()) {
+                return image.getId();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Compares strings character by character, except that runs of digits compare by their numeric value.
+     */
+    static int compareNatural(String a, String b) {
+        int i = 0;
+        int j = 0;
+        while (i < a.length() && j < b.length()) {
+            char ca = a.charAt(i);
+            char cb = b.charAt(j);
+            if (Character.isDigit(ca) && Character.isDigit(cb)) {
+                int endA = digitsEnd(a, i);
+                int endB = digitsEnd(b, j);
+                // compare without leading zeros: the longer number is greater, equal lengths compare digit by digit
+                int startA = skipZeros(a, i, endA);
+                int startB = skipZeros(b, j, endB);
+                int byLength = (endA - startA) - (endB - startB);
+                if (byLength != 0) {
+                    return byLength;
+                }
+                int byDigits = a.substring(startA, endA).compareTo(b.substring(startB, endB));
+                if (byDigits != 0) {
+                    return byDigits;
+                }
+                i = endA;
+                j = endB;
+            } else {
+                if (ca != cb) {
+                    return ca - cb;
+                }
+                i++;
+                j++;
+            }
+        }
+        int byRest = (a.length() - i) - (b.length() - j);
+        // names equal in natural order but spelled differently, such as with leading zeros
+        return byRest != 0 ? byRest : a.compareTo(b);
+    }
+
+    private static int digitsEnd(String s, int from) {
+        int end = from;
+        while (end < s.length() && Character.isDigit(s.charAt(end))) {
+            end++;
+        }
+        return end;
+    }
+
+    private static int skipZeros(String s, int from, int end) {
+        int start = from;
+        while (start < end - 1 && s.charAt(start) == '0') {
+            start++;
+        }
+        return start;
+    }
+}
@@ -0,0 +1,88 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import hudson.model.Label;
+import hudson.model.labels.LabelAtom;
+import shaded.com.google.common.base.Function;
+import shaded.com.google.common.base.Optional;
+
+/**
+ * Resolves a {@link Label} to the first item, in configuration order, whose label set it matches.
+ * <p/>
+ * A label expression only looks at its own atoms, so it matches a label set that shares none of them exactly when it
+ * matches the empty set. Labels that don't match the empty set therefore only need to be evaluated against the items
+ * that carry one of their atoms. Results are memoized per label; the items and their label sets must not change,
+ * build a new index instead.
+ */
+public class LabelIndex<T> {
+    private final List<T> items;
+    private final List<Set<LabelAtom>> labelSets;
+    private final Map<LabelAtom, List<Integer>> byAtom = new HashMap<LabelAtom, List<Integer>>();
+    private final ConcurrentMap<Label, Optional<T>> memo = new ConcurrentHashMap<Label, Optional<T>>();
+
+    public LabelIndex(List<T> items, Function<T, Set<LabelAtom>> labels) {
+        this.items = new ArrayList<T>(items);
+        this.labelSets = new ArrayList<Set<LabelAtom>>(items.size());
+        for (int i = 0; i < this.items.size(); i++) {
+            Set<LabelAtom> labelSet = labels.apply(this.items.get(i));
+            labelSets.add(labelSet);
+            for (LabelAtom atom : labelSet) {
+                List<Integer> indexes = byAtom.get(atom);
+                if (indexes == null) {
+                    indexes = new ArrayList<Integer>();
+                    byAtom.put(atom, indexes);
+                }
+                indexes.add(i);
+            }
+        }
+    }
+
+    /**
+     * @return the first item matching the label, any item for a {@code null} label, or {@code null} if none matches.
+     */
+    public T get(Label label) {
+        if (label == null) {
+            return items.isEmpty() ? null : items.get(0);
+        }
+        Optional<T> result = memo.get(label);
+        if (result == null) {
+            result = Optional.fromNullable(resolve(label));
+            memo.putIfAbsent(label, result);
+        }
+        return result.orNull();
+    }
+
+    private T resolve(Label label) {
+        if (label.matches(Collections.<LabelAtom>emptySet())) {
+            for (int i = 0; i < items.size(); i++) {
+                if (label.matches(labelSets.get(i))) {
+                    return items.get(i);
+                }
+            }
+            return null;
+        }
+        // candidates in configuration order, so that the first match wins as with a full scan
+        Set<Integer> candidates = new TreeSet<Integer>();
+        for (LabelAtom atom : label.listAtoms()) {
+            List<Integer> indexes = byAtom.get(atom);
+            if (indexes != null) {
+                candidates.addAll(indexes);
+            }
+        }
+        for (int i : candidates) {
+            if (label.matches(labelSets.get(i))) {
+                return items.get(i);
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,31 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Exponentially weighted moving average of latencies, updated without locks.
+ */
+public class LatencyEwma {
+    private static final double ALPHA = 0.2;
+    private static final long NO_SAMPLE = Double.doubleToLongBits(-1);
+
+    private final AtomicLong averageBits = new AtomicLong(NO_SAMPLE);
+
+    public void record(long millis) {
+        while (true) {
+            long bits = averageBits.get();
+            double average = Double.longBitsToDouble(bits);
+            double next = average < 0 ? millis : average + ALPHA * (millis - average);
+            if (averageBits.compareAndSet(bits, Double.doubleToLongBits(next))) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return the average in milliseconds, or 0 before the first sample.
+     */
+    public long getMillis() {
+        return Math.max(0, Math.round(Double.longBitsToDouble(averageBits.get())));
+    }
+}
@@ -0,0 +1,91 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.jclouds.compute.domain.NodeMetadata;
+
+import shaded.com.google.common.base.Function;
+import shaded.com.google.common.base.Supplier;
+
+/**
+ * Loads the metadata of all slaves of a cloud with one details listing, instead of one call per slave.
+ * <p/>
+ * Slaves don't persist their node metadata, so after a restart the launcher, the phone home handler and the UI would
+ * each fetch it node by node. The first {@link #take} loads the details of every known node id at once; concurrent
+ * callers wait for that load rather than calling the provider themselves. Each slave takes its metadata out once, ids
+ * the listing didn't return are left to the caller.
+ */
+public class MetadataHydrator {
+    private static final Logger LOGGER = Logger.getLogger(MetadataHydrator.class.getName());
+
+    private final String cloudName;
+    private final Supplier<Set<String>> knownIds;
+    private final Function<Set<String>, Iterable<? extends NodeMetadata>> loader;
+    private final Map<String, NodeMetadata> hydrated = new ConcurrentHashMap<String, NodeMetadata>();
+    private volatile boolean loaded;
+    private volatile long hydrationMillis = -1;
+
+    /**
+     * @param knownIds the node ids of the cloud's slaves.
+     * @param loader   lists the details of the nodes with the given ids.
+     */
+    public MetadataHydrator(String cloudName, Supplier<Set<String>> knownIds,
+            Function<Set<String>, Iterable<? extends NodeMetadata>> loader) {
+        this.cloudName = cloudName;
+        this.knownIds = knownIds;
+        this.loader = loader;
+    }
+
+    /**
+     * Loads the metadata of all known slaves, unless it was loaded already.
+     */
+    public void hydrate() {
+        if (loaded) {
+            return;
+        }
+        synchronized (this) {
+            if (loaded) {
+                return;
+            }
+            long startedAt = System.currentTimeMillis();
+            Set<String> ids = knownIds.get();
+            try {
+                if (!ids.isEmpty()) {
+                    for (NodeMetadata node : loader.apply(ids)) {
+                        if (ids.contains(node.getId())) {
+                            hydrated.put(node.getId(), node);
+                        }
+                    }
+                }
+            } catch (RuntimeException e) {
+                // not retried, the slaves fall back to fetching their own metadata
+                LOGGER.log(Level.WARNING, "Failed to hydrate the slave metadata of cloud " + cloudName, e);
+            }
+            loaded = true;
+            hydrationMillis = System.currentTimeMillis() - startedAt;
+            LOGGER.info("Hydrated the metadata of " + hydrated.size() + " of " + ids.size() + " slaves of cloud "
+                    + cloudName + " in " + hydrationMillis + " ms");
+        }
+    }
+
+    /**
+     * The metadata of the node, hydrating first if needed.
+     *
+     * @return the metadata, or {@code null} if the listing didn't return the node or it was taken already.
+     */
+    public NodeMetadata take(String id) {
+        hydrate();
+        return hydrated.remove(id);
+    }
+
+    /**
+     * How long the load took, or -1 if it didn't run yet.
+     */
+    public long getHydrationMillis() {
+        return hydrationMillis;
+    }
+}
@@ -0,0 +1,140 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jclouds.compute.domain.ComputeMetadata;
+import org.jclouds.compute.domain.NodeMetadata;
+
+import shaded.com.google.common.base.Supplier;
+import shaded.com.google.common.collect.ImmutableMap;
+
+/**
+ * Snapshot of the nodes of one cloud, shared by all code paths that need to count or look up nodes.
+ * <p/>
+ * The snapshot is reloaded with a single list call once it is older than the staleness bound, and kept up to date in
+ * between from our own create/remove events.
+ */
+public class NodeInventory {
+    private final Supplier<? extends Iterable<? extends ComputeMetadata>> lister;
+    private final long stalenessMillis;
+    private final Object lock = new Object();
+    private final List<Delta> deltas = new ArrayList<Delta>();
+
+    private volatile Map<String, NodeMetadata> nodes = ImmutableMap.of();
+    private volatile long refreshedAt;
+
+    public NodeInventory(Supplier<? extends Iterable<? extends ComputeMetadata>> lister, long stalenessMillis) {
+        this.lister = lister;
+        this.stalenessMillis = stalenessMillis;
+    }
+
+    /**
+     * Nodes of the cloud, reloading the snapshot first if it is stale.
+     */
+    public Collection<NodeMetadata> getNodes() {
+        if (isStale()) {
+            synchronized (lock) {
+                // another thread may have reloaded while we were waiting
+                if (isStale()) {
+                    refresh();
+                }
+            }
+        }
+        return nodes.values();
+    }
+
+    /**
+     * Nodes of the cloud as of the last load, without reloading a stale snapshot.
+     */
+    public Collection<NodeMetadata> getSnapshot() {
+        return nodes.values();
+    }
+
+    public NodeMetadata getNode(String id) {
+        getNodes();
+        return nodes.get(id);
+    }
+
+    /**
+     * Reloads the snapshot from the provider, regardless of its age.
+     */
+    public void refresh() {
+        long startedAt = System.currentTimeMillis();
+        Map<String, NodeMetadata> listed = new LinkedHashMap<String, NodeMetadata>();
+        for (ComputeMetadata cm : lister.get()) {
+            if (NodeMetadata.class.isInstance(cm)) {
+                listed.put(cm.getId(), (NodeMetadata) cm);
+            }
+        }
+        synchronized (lock) {
+            // replay our own changes that the listing may not have seen yet
+            for (Iterator<Delta> it = deltas.iterator(); it.hasNext(); ) {
+                Delta delta = it.next();
+                if (delta.time < startedAt) {
+                    it.remove();
+                } else if (delta.node == null) {
+                    listed.remove(delta.id);
+                } else {
+                    listed.put(delta.id, delta.node);
+                }
+            }
+            nodes = ImmutableMap.copyOf(listed);
+            refreshedAt = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Records a node we created or whose state we changed.
+     */
+    public void nodeChanged(NodeMetadata node) {
+        apply(new Delta(node.getId(), node));
+    }
+
+    /**
+     * Records a node we destroyed.
+     */
+    public void nodeRemoved(String id) {
+        apply(new Delta(id, null));
+    }
+
+    /**
+     * Age of the snapshot in milliseconds, or -1 if it was never loaded.
+     */
+    public long getAgeMillis() {
+        long at = refreshedAt;
+        return at == 0 ? -1 : System.currentTimeMillis() - at;
+    }
+
+    private boolean isStale() {
+        return refreshedAt == 0 || System.currentTimeMillis() - refreshedAt >= stalenessMillis;
+    }
+
+    private void apply(Delta delta) {
+        synchronized (lock) {
+            deltas.add(delta);
+            Map<String, NodeMetadata> updated = new LinkedHashMap<String, NodeMetadata>(nodes);
+            if (delta.node == null) {
+                updated.remove(delta.id);
+            } else {
+                updated.put(delta.id, delta.node);
+            }
+            nodes = ImmutableMap.copyOf(updated);
+        }
+    }
+
+    private static class Delta {
+        final long time = System.currentTimeMillis();
+        final String id;
+        final NodeMetadata node;
+
+        Delta(String id, NodeMetadata node) {
+            this.id = id;
+            this.node = node;
+        }
+    }
+}
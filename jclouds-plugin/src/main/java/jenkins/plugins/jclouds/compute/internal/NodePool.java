@@ -0,0 +1,196 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.compute.domain.NodeMetadata;
+
+/**
+ * Warm standby nodes of one template, created ahead of demand so they can be handed out without waiting for a
+ * VM to boot.
+ * <p/>
+ * Refills are claimed before the nodes are created, so concurrent callers never start more nodes than the pool
+ * is missing. Nodes of templates that wait for phone home are added as booting, and can only be taken once they
+ * phoned home. Taken nodes are tracked until they are forgotten, so that a node lost on its way from the pool to a
+ * slave can be told apart from one still being handed out.
+ */
+public class NodePool {
+    private final Queue<NodeMetadata> idle = new ConcurrentLinkedQueue<NodeMetadata>();
+    // by node id
+    private final Map<String, Booting> booting = new ConcurrentHashMap<String, Booting>();
+    // when taken, by node id, until the node became a slave or was given back
+    private final Map<String, Long> handedOut = new ConcurrentHashMap<String, Long>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final AtomicInteger pending = new AtomicInteger();
+
+    /**
+     * Takes a node out of the pool. The node counts as {@link #isHeld held} until it is {@link #forget forgotten}.
+     *
+     * @return the node, or {@code null} if the pool is empty.
+     */
+    public synchronized NodeMetadata take() {
+        NodeMetadata node = idle.poll();
+        if (node != null) {
+            size.decrementAndGet();
+            handedOut.put(node.getId(), System.currentTimeMillis());
+        }
+        return node;
+    }
+
+    /**
+     * Adds a ready node, or gives back a node that was taken but not used.
+     */
+    public synchronized void add(NodeMetadata node) {
+        idle.add(node);
+        size.incrementAndGet();
+        handedOut.remove(node.getId());
+    }
+
+    /**
+     * Whether the node is in the pool, or was taken less than {@code handOutMillis} ago and not forgotten since.
+     */
+    public synchronized boolean isHeld(String nodeId, long handOutMillis) {
+        if (booting.containsKey(nodeId)) {
+            return true;
+        }
+        Long takenAt = handedOut.get(nodeId);
+        if (takenAt != null && System.currentTimeMillis() - takenAt < handOutMillis) {
+            return true;
+        }
+        for (NodeMetadata node : idle) {
+            if (node.getId().equals(nodeId)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Stops tracking a taken node, which became a slave, was destroyed or is owned by someone else now.
+     */
+    public void forget(String nodeId) {
+        handedOut.remove(nodeId);
+    }
+
+    /**
+     * Adds a node whose init script is still running; it is not handed out until {@link #phonedHome} is called for
+     * its hostname.
+     */
+    public void addBooting(NodeMetadata node) {
+        booting.put(node.getId(), new Booting(node));
+    }
+
+    /**
+     * Makes the booting node with the given hostname available.
+     *
+     * @return whether a booting node has that hostname.
+     */
+    public synchronized boolean phonedHome(String hostname) {
+        for (Booting entry : booting.values()) {
+            if (hostname.equals(entry.node.getHostname()) && booting.remove(entry.node.getId(), entry)) {
+                add(entry.node);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Removes the booting nodes that didn't phone home within {@code maxAgeMillis}.
+     *
+     * @return the removed nodes, which the caller must destroy.
+     */
+    public List<NodeMetadata> expireBooting(long maxAgeMillis) {
+        List<NodeMetadata> expired = new ArrayList<NodeMetadata>();
+        long now = System.currentTimeMillis();
+        for (Iterator<Booting> it = booting.values().iterator(); it.hasNext(); ) {
+            Booting entry = it.next();
+            if (now - entry.addedAt > maxAgeMillis) {
+                it.remove();
+                expired.add(entry.node);
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * Claims the nodes needed to bring the pool, including the nodes already being created, up to {@code target}.
+     * The caller must {@link #release} every claimed node once it was created or failed.
+     *
+     * @return the number of nodes claimed, possibly 0.
+     */
+    public int claim(int target) {
+        while (true) {
+            int claimed = pending.get();
+            int missing = target - size.get() - booting.size() - claimed;
+            if (missing <= 0) {
+                return 0;
+            }
+            if (pending.compareAndSet(claimed, claimed + missing)) {
+                return missing;
+            }
+        }
+    }
+
+    public void release(int count) {
+        pending.addAndGet(-count);
+    }
+
+    /**
+     * Removes the nodes above {@code maxIdle}.
+     *
+     * @return the removed nodes, which the caller must destroy.
+     */
+    public List<NodeMetadata> trim(int maxIdle) {
+        List<NodeMetadata> removed = new ArrayList<NodeMetadata>();
+        while (size.get() > maxIdle) {
+            NodeMetadata node = take();
+            if (node == null) {
+                break;
+            }
+            removed.add(node);
+        }
+        return removed;
+    }
+
+    /**
+     * Removes all nodes, booting or not.
+     *
+     * @return the removed nodes, which the caller must destroy.
+     */
+    public List<NodeMetadata> drain() {
+        List<NodeMetadata> removed = expireBooting(-1);
+        removed.addAll(trim(0));
+        return removed;
+    }
+
+    /**
+     * The nodes ready to be taken.
+     */
+    public int size() {
+        return size.get();
+    }
+
+    public int getBooting() {
+        return booting.size();
+    }
+
+    public int getPending() {
+        return pending.get();
+    }
+
+    private static final class Booting {
+        final NodeMetadata node;
+        final long addedAt = System.currentTimeMillis();
+
+        Booting(NodeMetadata node) {
+            this.node = node;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Latency histograms of the provisioning phases of one template, kept across reconfigurations of the cloud.
+ */
+public class PhaseTimings {
+    private static final ConcurrentMap<String, PhaseTimings> TIMINGS = new ConcurrentHashMap<String, PhaseTimings>();
+
+    private final String cloudName;
+    private final String templateName;
+    private final Map<ProvisioningPhase, LatencyHistogram> histograms =
+            new EnumMap<ProvisioningPhase, LatencyHistogram>(ProvisioningPhase.class);
+
+    private PhaseTimings(String cloudName, String templateName) {
+        this.cloudName = cloudName;
+        this.templateName = templateName;
+        for (ProvisioningPhase phase : ProvisioningPhase.values()) {
+            histograms.put(phase, new LatencyHistogram());
+        }
+    }
+
+    public static PhaseTimings of(String cloudName, String templateName) {
+        String key = cloudName + "/" + templateName;
+        PhaseTimings timings = TIMINGS.get(key);
+        if (timings == null) {
+            TIMINGS.putIfAbsent(key, new PhaseTimings(cloudName, templateName));
+            timings = TIMINGS.get(key);
+        }
+        return timings;
+    }
+
+    /**
+     * The timings of all templates of the cloud that recorded anything.
+     */
+    public static List<PhaseTimings> ofCloud(String cloudName) {
+        List<PhaseTimings> timings = new ArrayList<PhaseTimings>();
+        for (PhaseTimings t : TIMINGS.values()) {
+            if (t.cloudName.equals(cloudName)) {
+                timings.add(t);
+            }
+        }
+        return timings;
+    }
+
+    public static List<PhaseTimings> all() {
+        return new ArrayList<PhaseTimings>(TIMINGS.values());
+    }
+
+    public void record(ProvisioningPhase phase, long startedAtMillis) {
+        histograms.get(phase).record(System.currentTimeMillis() - startedAtMillis);
+    }
+
+    public LatencyHistogram getHistogram(ProvisioningPhase phase) {
+        return histograms.get(phase);
+    }
+
+    public String getCloudName() {
+        return cloudName;
+    }
+
+    public String getTemplateName() {
+        return templateName;
+    }
+}
@@ -0,0 +1,63 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import shaded.com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Releases the threads waiting for a node to phone home as soon as it does.
+ * <p/>
+ * The timeout is run by a shared scheduler, so waiting threads don't wake up to poll.
+ */
+public class PhoneHomeSignal {
+    private final SettableFuture<Void> phonedHome = SettableFuture.create();
+
+    /**
+     * Fails the signal after {@code timeoutMillis}, unless it was signalled before.
+     */
+    public void timeoutAfter(ScheduledExecutorService scheduler, long timeoutMillis) {
+        scheduler.schedule(new Runnable() {
+            public void run() {
+                abort("wait for phone home timed out");
+            }
+        }, Math.max(timeoutMillis, 0), TimeUnit.MILLISECONDS);
+    }
+
+    public void signal() {
+        phonedHome.set(null);
+    }
+
+    public void abort(String reason) {
+        phonedHome.setException(new InterruptedException(reason));
+    }
+
+    /**
+     * Whether the signal timed out or was aborted, so that a new wait needs a new signal.
+     */
+    public boolean isFailed() {
+        if (!phonedHome.isDone()) {
+            return false;
+        }
+        try {
+            phonedHome.get();
+            return false;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    /**
+     * Waits until the node phoned home.
+     *
+     * @throws InterruptedException if the wait timed out, was aborted or the thread was interrupted.
+     */
+    public void await() throws InterruptedException {
+        try {
+            phonedHome.get();
+        } catch (ExecutionException e) {
+            throw (InterruptedException) new InterruptedException(e.getCause().getMessage()).initCause(e.getCause());
+        }
+    }
+}
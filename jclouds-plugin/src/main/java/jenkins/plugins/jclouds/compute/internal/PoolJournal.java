@@ -0,0 +1,139 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The nodes the warm pools of one cloud created, with the template each was created for, kept on disk so that pooled
+ * nodes are not lost track of when Jenkins stops without destroying its pools.
+ * <p/>
+ * A node is added once its create returned and removed once it was destroyed, became a slave or no longer exists.
+ * The journal is a text file holding the cloud name, then one {@code template<TAB>node id} line per node.
+ */
+public class PoolJournal {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final String cloudName;
+    private final File file;
+    // template names by node id
+    private final ConcurrentMap<String, String> nodes = new ConcurrentHashMap<String, String>();
+    private volatile boolean dirty;
+
+    /**
+     * @param file where the journal is stored, or {@code null} to keep it in memory only.
+     */
+    public PoolJournal(String cloudName, File file) {
+        this.cloudName = cloudName;
+        this.file = file;
+    }
+
+    public void add(String templateName, String nodeId) {
+        nodes.put(nodeId, templateName);
+        dirty = true;
+    }
+
+    public void remove(String nodeId) {
+        if (nodes.remove(nodeId) != null) {
+            dirty = true;
+        }
+    }
+
+    /**
+     * The template names of the journaled nodes, by node id.
+     */
+    public Map<String, String> getNodes() {
+        return new HashMap<String, String>(nodes);
+    }
+
+    public boolean isEmpty() {
+        return nodes.isEmpty();
+    }
+
+    public String getCloudName() {
+        return cloudName;
+    }
+
+    public void load() throws IOException {
+        if (file == null || !file.exists()) {
+            return;
+        }
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8));
+        try {
+            if (!cloudName.equals(in.readLine())) {
+                throw new IOException("Pool journal " + file + " is not the journal of cloud " + cloudName);
+            }
+            String line;
+            while ((line = in.readLine()) != null) {
+                int tab = line.indexOf('\t');
+                if (tab > 0) {
+                    nodes.put(line.substring(tab + 1), line.substring(0, tab));
+                }
+            }
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Loads a journal file without knowing its cloud, for journals of clouds that are no longer configured.
+     */
+    public static PoolJournal read(File file) throws IOException {
+        String cloudName;
+        BufferedReader in = new BufferedReader(new InputStreamReader(new FileInputStream(file), UTF_8));
+        try {
+            cloudName = in.readLine();
+        } finally {
+            in.close();
+        }
+        if (cloudName == null) {
+            throw new IOException("Empty pool journal " + file);
+        }
+        PoolJournal journal = new PoolJournal(cloudName, file);
+        journal.load();
+        return journal;
+    }
+
+    /**
+     * Writes the journal if it changed since it was last written.
+     */
+    public synchronized void save() throws IOException {
+        if (file == null || !dirty) {
+            return;
+        }
+        dirty = false;
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Failed to create " + dir);
+        }
+        File tmp = new File(dir, file.getName() + ".tmp");
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tmp), UTF_8));
+        try {
+            out.write(cloudName);
+            out.write('\n');
+            for (Map.Entry<String, String> entry : getNodes().entrySet()) {
+                out.write(entry.getValue());
+                out.write('\t');
+                out.write(entry.getKey());
+                out.write('\n');
+            }
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            dirty = true;
+            throw new IOException("Failed to replace " + file);
+        }
+    }
+}
@@ -1,12 +1,14 @@
 package jenkins.plugins.jclouds.compute.internal;
 
 import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.jclouds.compute.domain.NodeMetadata;
 import org.jclouds.logging.Logger;
 
 import shaded.com.google.common.base.Function;
+import shaded.com.google.common.base.Functions;
 import shaded.com.google.common.collect.ImmutableList;
 import shaded.com.google.common.util.concurrent.FutureCallback;
 import shaded.com.google.common.util.concurrent.Futures;
@@ -14,12 +16,20 @@ import shaded.com.google.common.util.concurrent.ListenableFuture;
 import shaded.com.google.common.util.concurrent.ListeningExecutorService;
 
 public class ProvisionPlannedInstancesAndDestroyAllOnError implements Function<Iterable<NodePlan>, Iterable<RunningNode>> {
-    private final ListeningExecutorService executor;
+    private final Function<String, ? extends ListeningExecutorService> executors;
     private final Logger logger;
     private final Function<Iterable<RunningNode>, Void> terminateNodes;
 
     public ProvisionPlannedInstancesAndDestroyAllOnError(ListeningExecutorService executor, Logger logger, Function<Iterable<RunningNode>, Void> terminateNodes) {
-        this.executor = executor;
+        this(Functions.constant(executor), logger, terminateNodes);
+    }
+
+    /**
+     * @param executors the executor to provision the nodes of a cloud on, by cloud name.
+     */
+    public ProvisionPlannedInstancesAndDestroyAllOnError(Function<String, ? extends ListeningExecutorService> executors, Logger logger,
+            Function<Iterable<RunningNode>, Void> terminateNodes) {
+        this.executors = executors;
         this.logger = logger;
         this.terminateNodes = terminateNodes;
     }
@@ -36,7 +46,15 @@ public class ProvisionPlannedInstancesAndDestroyAllOnError implements Function<I
                 final int index = i;
                 logger.info("Queuing cloud instance: #%d %d, %s %s", index, nodePlan.getCount(), nodePlan.getCloudName(), nodePlan.getTemplateName());
 
-                ListenableFuture<NodeMetadata> provisionTemplate = executor.submit(new RetrySupplierOnException(nodePlan.getNodeSupplier(), logger));
+                ListenableFuture<NodeMetadata> provisionTemplate;
+                try {
+                    provisionTemplate = executors.apply(nodePlan.getCloudName()).submit(new RetrySupplierOnException(nodePlan.getNodeSupplier(), logger));
+                } catch (RejectedExecutionException e) {
+                    failedLaunches.incrementAndGet();
+                    logger.warn(e, "Rejected launching instance: #%d %d, %s %s", index, nodePlan.getCount(), nodePlan.getCloudName(),
+                            nodePlan.getTemplateName());
+                    continue;
+                }
 
                 Futures.addCallback(provisionTemplate, new FutureCallback<NodeMetadata>() {
                     public void onSuccess(NodeMetadata result) {
@@ -0,0 +1,23 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+/**
+ * The timed phases of provisioning a node, in the order they happen.
+ */
+public enum ProvisioningPhase {
+    QUOTA("Quota check"),
+    RESOLVE("Template resolution"),
+    CREATE("Create nodes"),
+    PHONE_HOME("Phone home wait"),
+    SSH_CONNECT("SSH connect"),
+    ONLINE("Planned to online");
+
+    private final String displayName;
+
+    ProvisioningPhase(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
@@ -0,0 +1,107 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * When each step of bringing up one node happened, kept with its slave.
+ * <p/>
+ * The timeline is a fixed array of timestamps, one per {@link Event}. Each event is recorded once, later occurrences
+ * (e.g. the SSH connect of a relaunch) keep the first timestamp, so recording never allocates. Recording doesn't save
+ * the slave either; the timeline is written with the next save of the node configuration.
+ */
+public class ProvisioningTimeline {
+
+    public enum Event {
+        REQUESTED,
+        API_ACCEPTED,
+        RUNNING,
+        IP_ASSIGNED,
+        PHONED_HOME,
+        SSH_CONNECTED,
+        ONLINE;
+
+        /**
+         * The event's name as used in exports, e.g. {@code api_accepted}.
+         */
+        public String getKey() {
+            return name().toLowerCase(Locale.ENGLISH);
+        }
+    }
+
+    private final long[] at = new long[Event.values().length];
+
+    public void record(Event event) {
+        recordAt(event, System.currentTimeMillis());
+    }
+
+    public synchronized void recordAt(Event event, long millis) {
+        if (at[event.ordinal()] == 0) {
+            at[event.ordinal()] = millis;
+        }
+    }
+
+    /**
+     * @return the time of the event, or 0 if it did not happen (yet).
+     */
+    public synchronized long getTime(Event event) {
+        return at[event.ordinal()];
+    }
+
+    /**
+     * The events that happened, in the order of {@link Event}.
+     */
+    public List<Entry> getEntries() {
+        long[] snapshot;
+        synchronized (this) {
+            snapshot = at.clone();
+        }
+        long start = 0;
+        List<Entry> entries = new ArrayList<Entry>();
+        for (Event event : Event.values()) {
+            long time = snapshot[event.ordinal()];
+            if (time == 0) {
+                continue;
+            }
+            if (start == 0) {
+                start = time;
+            }
+            entries.add(new Entry(event, time, time - start));
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    public static final class Entry {
+        private final Event event;
+        private final long time;
+        private final long elapsedMillis;
+
+        Entry(Event event, long time, long elapsedMillis) {
+            this.event = event;
+            this.time = time;
+            this.elapsedMillis = elapsedMillis;
+        }
+
+        public Event getEvent() {
+            return event;
+        }
+
+        public long getTime() {
+            return time;
+        }
+
+        public Date getDate() {
+            return new Date(time);
+        }
+
+        /**
+         * Milliseconds since the first recorded event.
+         */
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import shaded.com.google.common.base.Function;
+import shaded.com.google.common.base.Supplier;
+import shaded.com.google.common.collect.ImmutableMap;
+
+/**
+ * Caches the quota, usage and flavor lookups of one cloud tenant.
+ * <p/>
+ * Flavors are cached for the lifetime of the cache, which is replaced whenever the cloud configuration is saved.
+ * Quota and usage are reloaded once they are older than the TTL; in between, usage is kept current from our own
+ * create and destroy events.
+ */
+public class QuotaCache {
+    public static final String VCPU_KEY = "vcpu";
+    public static final String RAM_KEY = "ram";
+    public static final String INSTANCE_KEY = "instance";
+
+    private final Supplier<Map<String, Integer>> quotaLoader;
+    private final Supplier<Map<String, Integer>> usageLoader;
+    private final Function<String, Map<String, Integer>> flavorLoader;
+    private final long ttlMillis;
+
+    private final ConcurrentMap<String, Map<String, Integer>> flavors = new ConcurrentHashMap<String, Map<String, Integer>>();
+    private final Object lock = new Object();
+
+    private volatile Map<String, Integer> quota;
+    private volatile long quotaLoadedAt;
+    private volatile Map<String, Integer> usage;
+    private volatile long usageLoadedAt;
+
+    // our own changes since usage was last loaded
+    private final AtomicInteger vcpuDelta = new AtomicInteger();
+    private final AtomicInteger ramDelta = new AtomicInteger();
+    private final AtomicInteger instanceDelta = new AtomicInteger();
+
+    public QuotaCache(Supplier<Map<String, Integer>> quotaLoader, Supplier<Map<String, Integer>> usageLoader,
+            Function<String, Map<String, Integer>> flavorLoader, long ttlMillis) {
+        this.quotaLoader = quotaLoader;
+        this.usageLoader = usageLoader;
+        this.flavorLoader = flavorLoader;
+        this.ttlMillis = ttlMillis;
+    }
+
+    public Map<String, Integer> getQuota() {
+        if (isExpired(quotaLoadedAt)) {
+            synchronized (lock) {
+                if (isExpired(quotaLoadedAt)) {
+                    quota = ImmutableMap.copyOf(quotaLoader.get());
+                    quotaLoadedAt = System.currentTimeMillis();
+                }
+            }
+        }
+        return quota;
+    }
+
+    /**
+     * Usage of the tenant, including the nodes we created or destroyed since it was last loaded.
+     */
+    public Map<String, Integer> getUsage() {
+        if (isExpired(usageLoadedAt)) {
+            synchronized (lock) {
+                if (isExpired(usageLoadedAt)) {
+                    reloadUsage();
+                }
+            }
+        }
+        Map<String, Integer> base = usage;
+        return ImmutableMap.of(
+                VCPU_KEY, base.get(VCPU_KEY) + vcpuDelta.get(),
+                RAM_KEY, base.get(RAM_KEY) + ramDelta.get(),
+                INSTANCE_KEY, base.get(INSTANCE_KEY) + instanceDelta.get());
+    }
+
+    public Map<String, Integer> getFlavor(String flavorId) {
+        Map<String, Integer> flavor = flavors.get(flavorId);
+        if (flavor == null) {
+            flavor = ImmutableMap.copyOf(flavorLoader.apply(flavorId));
+            flavors.putIfAbsent(flavorId, flavor);
+        }
+        return flavor;
+    }
+
+    public void nodeCreated(int vcpu, int ram) {
+        vcpuDelta.addAndGet(vcpu);
+        ramDelta.addAndGet(ram);
+        instanceDelta.incrementAndGet();
+    }
+
+    public void nodeDestroyed(int vcpu, int ram) {
+        vcpuDelta.addAndGet(-vcpu);
+        ramDelta.addAndGet(-ram);
+        instanceDelta.decrementAndGet();
+    }
+
+    /**
+     * Drops quota and usage so that the next read goes to the provider.
+     */
+    public void invalidate() {
+        quotaLoadedAt = 0;
+        usageLoadedAt = 0;
+    }
+
+    private void reloadUsage() {
+        // changes made while the usage is loading stay in the deltas
+        int vcpu = vcpuDelta.get();
+        int ram = ramDelta.get();
+        int instances = instanceDelta.get();
+        usage = ImmutableMap.copyOf(usageLoader.get());
+        usageLoadedAt = System.currentTimeMillis();
+        vcpuDelta.addAndGet(-vcpu);
+        ramDelta.addAndGet(-ram);
+        instanceDelta.addAndGet(-instances);
+    }
+
+    private boolean isExpired(long loadedAt) {
+        return loadedAt == 0 || System.currentTimeMillis() - loadedAt >= ttlMillis;
+    }
+}
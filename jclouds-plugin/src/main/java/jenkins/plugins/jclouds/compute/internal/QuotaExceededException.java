@@ -0,0 +1,12 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+/**
+ * Thrown when creating a node would exceed the quota of the cloud tenant.
+ */
+public class QuotaExceededException extends IllegalStateException {
+    private static final long serialVersionUID = 1L;
+
+    public QuotaExceededException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,125 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static jenkins.plugins.jclouds.compute.internal.QuotaCache.INSTANCE_KEY;
+import static jenkins.plugins.jclouds.compute.internal.QuotaCache.RAM_KEY;
+import static jenkins.plugins.jclouds.compute.internal.QuotaCache.VCPU_KEY;
+
+/**
+ * Reserves tenant quota for planned nodes before they are created, so that concurrent provisioning can't
+ * over-commit the tenant.
+ * <p/>
+ * A reservation is taken before the create call and is either committed, moving its resources into the cached
+ * usage, or released when the create fails. Reservations never block: when the counters would exceed the quota
+ * the reservation is rolled back and refused.
+ */
+public class QuotaLedger {
+    private final QuotaCache quotaCache;
+    private final AtomicInteger reservedVcpu = new AtomicInteger();
+    private final AtomicInteger reservedRam = new AtomicInteger();
+    private final AtomicInteger reservedInstances = new AtomicInteger();
+    private final Set<Reservation> outstanding = Collections.newSetFromMap(new ConcurrentHashMap<Reservation, Boolean>());
+
+    public QuotaLedger(QuotaCache quotaCache) {
+        this.quotaCache = quotaCache;
+    }
+
+    /**
+     * Reserves one node worth of resources.
+     *
+     * @return the reservation, or {@code null} if it would exceed the quota.
+     */
+    public Reservation tryReserve(int vcpu, int ram) {
+        Map<String, Integer> quota = quotaCache.getQuota();
+        Map<String, Integer> usage = quotaCache.getUsage();
+
+        Reservation reservation = reserve(vcpu, ram);
+        if (usage.get(VCPU_KEY) + reservedVcpu.get() > quota.get(VCPU_KEY)
+                || usage.get(RAM_KEY) + reservedRam.get() > quota.get(RAM_KEY)
+                || usage.get(INSTANCE_KEY) + reservedInstances.get() > quota.get(INSTANCE_KEY)) {
+            reservation.release();
+            return null;
+        }
+        return reservation;
+    }
+
+    /**
+     * Reserves one node worth of resources without checking the quota, for when the quota can't be loaded.
+     */
+    public Reservation reserve(int vcpu, int ram) {
+        Reservation reservation = new Reservation(vcpu, ram);
+        reservedVcpu.addAndGet(vcpu);
+        reservedRam.addAndGet(ram);
+        reservedInstances.incrementAndGet();
+        outstanding.add(reservation);
+        return reservation;
+    }
+
+    /**
+     * Releases reservations older than {@code maxAgeMillis}, whose creates must have been lost.
+     */
+    public void expire(long maxAgeMillis) {
+        long now = System.currentTimeMillis();
+        for (Reservation reservation : outstanding) {
+            if (now - reservation.createdAt > maxAgeMillis) {
+                reservation.release();
+            }
+        }
+    }
+
+    public int getReservedVcpu() {
+        return reservedVcpu.get();
+    }
+
+    public int getReservedRam() {
+        return reservedRam.get();
+    }
+
+    public int getReservedInstances() {
+        return reservedInstances.get();
+    }
+
+    public class Reservation {
+        private final int vcpu;
+        private final int ram;
+        private final long createdAt = System.currentTimeMillis();
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        Reservation(int vcpu, int ram) {
+            this.vcpu = vcpu;
+            this.ram = ram;
+        }
+
+        /**
+         * The node was created: its resources now count as usage.
+         */
+        public void commit() {
+            if (done.compareAndSet(false, true)) {
+                quotaCache.nodeCreated(vcpu, ram);
+                drop();
+            }
+        }
+
+        /**
+         * The node was not created: give the resources back.
+         */
+        public void release() {
+            if (done.compareAndSet(false, true)) {
+                drop();
+            }
+        }
+
+        private void drop() {
+            reservedVcpu.addAndGet(-vcpu);
+            reservedRam.addAndGet(-ram);
+            reservedInstances.decrementAndGet();
+            outstanding.remove(this);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket holding up to {@code burst} permits, refilled at {@code permitsPerSecond}.
+ * <p/>
+ * Reserving is a single compare-and-set on the time the bucket runs dry, so callers never contend on a lock; a caller
+ * that has to wait sleeps on its own thread without holding any monitor. On a cloud's provisioning executor that
+ * thread is one of the few the cloud has, which is what bounds its concurrent calls in the first place.
+ */
+public class RateLimiter {
+    private final long intervalNanos;
+    private final long capacityNanos;
+    // time up to which the permits are handed out already
+    private final AtomicLong spentUntil;
+
+    /**
+     * @param permitsPerSecond refill rate; zero or less means no limit.
+     */
+    public RateLimiter(double permitsPerSecond, int burst) {
+        this.intervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+        this.capacityNanos = intervalNanos * Math.max(burst, 1);
+        this.spentUntil = new AtomicLong(System.nanoTime() - capacityNanos);
+    }
+
+    /**
+     * Takes {@code permits} from the bucket, sleeping until they are available.
+     *
+     * @throws InterruptedException if interrupted while waiting; the call the permits were for must not be made.
+     */
+    public void acquire(int permits) throws InterruptedException {
+        long waitNanos = reserve(permits, System.nanoTime());
+        if (waitNanos > 0) {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        }
+    }
+
+    /**
+     * @return the refill rate, or 0 without limit.
+     */
+    public double getPermitsPerSecond() {
+        return intervalNanos == 0 ? 0 : (double) TimeUnit.SECONDS.toNanos(1) / intervalNanos;
+    }
+
+    public int getBurst() {
+        return intervalNanos == 0 ? 0 : (int) (capacityNanos / intervalNanos);
+    }
+
+    long reserve(int permits, long now) {
+        if (intervalNanos == 0) {
+            return 0;
+        }
+        while (true) {
+            long spent = spentUntil.get();
+            long next = Math.max(spent, now - capacityNanos) + permits * intervalNanos;
+            if (spentUntil.compareAndSet(spent, next)) {
+                return Math.max(next - now, 0);
+            }
+        }
+    }
+}
@@ -1,26 +1,52 @@
 package jenkins.plugins.jclouds.compute.internal;
 
 import java.util.concurrent.Callable;
+import java.util.concurrent.ThreadLocalRandom;
 
+import org.jclouds.compute.RunNodesException;
 import org.jclouds.compute.domain.NodeMetadata;
 import org.jclouds.logging.Logger;
+import org.jclouds.rest.AuthorizationException;
+import org.jclouds.rest.InsufficientResourcesException;
 
 import shaded.com.google.common.base.Supplier;
+import shaded.com.google.common.base.Throwables;
+import shaded.com.google.common.collect.Iterables;
 
+/**
+ * Retries the supplier with exponential backoff and full jitter: attempt {@code n} waits a random time between zero
+ * and {@code min(maxDelay, baseDelay * 2^n)}. Quota, authorization and open circuit failures are not retried.
+ */
 class RetrySupplierOnException implements Callable<NodeMetadata> {
-    private final int MAX_ATTEMPTS = 5;
+    private static final int MAX_ATTEMPTS = Integer.getInteger("jclouds.plugin.retryAttempts", 5);
+    private static final long BASE_DELAY_MILLIS = Long.getLong("jclouds.plugin.retryBaseMs", 1000);
+    private static final long MAX_DELAY_MILLIS = Long.getLong("jclouds.plugin.retryMaxMs", 30000);
+
     private final Logger logger;
     private final Supplier<NodeMetadata> supplier;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
 
     RetrySupplierOnException(Supplier<NodeMetadata> supplier, Logger logger) {
+        this(supplier, logger, MAX_ATTEMPTS, BASE_DELAY_MILLIS, MAX_DELAY_MILLIS);
+    }
+
+    RetrySupplierOnException(Supplier<NodeMetadata> supplier, Logger logger, int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
         this.supplier = supplier;
         this.logger = logger;
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
     }
 
     public NodeMetadata call() throws Exception {
         int attempts = 0;
 
-        while (attempts < MAX_ATTEMPTS) {
+        while (attempts < maxAttempts) {
+            if (attempts > 0) {
+                Thread.sleep(delayMillis(attempts));
+            }
             attempts++;
             try {
                 NodeMetadata n = supplier.get();
@@ -28,12 +54,43 @@ class RetrySupplierOnException implements Callable<NodeMetadata> {
                     return n;
                 }
             } catch (RuntimeException e) {
-                logger.warn("Exception creating a node: " + e.getMessage());
-                // Something to log the e.getCause() which should be a
-                // RunNodesException
+                if (!isRetryable(e)) {
+                    logger.warn("Exception creating a node, not retrying: " + e.getMessage());
+                    throw e;
+                }
+                logger.warn("Exception creating a node (attempt " + attempts + " of " + maxAttempts + "): " + e.getMessage());
             }
         }
 
         return null;
     }
+
+    long delayMillis(int attempt) {
+        long ceiling = baseDelayMillis << Math.min(attempt, 30);
+        if (ceiling <= 0 || ceiling > maxDelayMillis) {
+            ceiling = maxDelayMillis;
+        }
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    /**
+     * Whether retrying could help; quota and authorization errors repeat until an operator steps in.
+     */
+    static boolean isRetryable(Throwable failure) {
+        for (Throwable t : Throwables.getCausalChain(failure)) {
+            if (t instanceof QuotaExceededException || t instanceof CircuitOpenException || t instanceof AuthorizationException
+                    || t instanceof InsufficientResourcesException) {
+                return false;
+            }
+            if (t instanceof RunNodesException) {
+                RunNodesException e = (RunNodesException) t;
+                for (Throwable cause : Iterables.<Throwable>concat(e.getExecutionErrors().values(), e.getNodeErrors().values())) {
+                    if (!isRetryable(cause)) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
 }
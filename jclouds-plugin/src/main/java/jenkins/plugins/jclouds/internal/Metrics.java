@@ -0,0 +1,179 @@
+package jenkins.plugins.jclouds.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+import jenkins.plugins.jclouds.compute.internal.LatencyHistogram;
+
+/**
+ * Counters and gauges of the plugin, rendered in the Prometheus text exposition format by {@link MetricsWebHook}.
+ * <p/>
+ * Each family is a constant of this class. A series is created the first time its label values are updated, after
+ * which an update is a map lookup and an atomic add, so updating never locks.
+ */
+public final class Metrics {
+    private static final List<Family> FAMILIES = new CopyOnWriteArrayList<Family>();
+
+    public static final Family NODES_PROVISIONED = register(new Family("jclouds_nodes_provisioned_total", "counter",
+            "Nodes that were created and came online.", "cloud", "template"));
+    public static final Family PROVISIONING_FAILURES = register(new Family("jclouds_provisioning_failures_total", "counter",
+            "Planned nodes that failed to be created or to come online.", "cloud", "template"));
+    public static final Family QUOTA_HEADROOM = register(new Family("jclouds_quota_headroom", "gauge",
+            "Tenant quota left after usage and open reservations, as of the last refresh.", "cloud", "resource"));
+    public static final Family NODES = register(new Family("jclouds_nodes", "gauge",
+            "Agents of each template, as of the last cleanup run.", "cloud", "template"));
+    public static final Family PENDING_DELETES = register(new Family("jclouds_pending_deletes", "gauge",
+            "Agents waiting to be deleted, as of the last cleanup run.", "cloud"));
+    public static final Family NODES_DELETED = register(new Family("jclouds_nodes_deleted_total", "counter",
+            "Agents the cleanup thread deleted.", "cloud"));
+    public static final Family DELETE_FAILURES = register(new Family("jclouds_delete_failures_total", "counter",
+            "Agent deletes that failed and are retried by the next cleanup run.", "cloud"));
+    public static final Family RETENTION_EXPIRED = register(new Family("jclouds_retention_expired_total", "counter",
+            "Idle agents the retention strategy marked for deletion.", "cloud"));
+    public static final Family HYDRATION_MILLIS = register(new Family("jclouds_slave_hydration_milliseconds", "gauge",
+            "Time the bulk load of the slave metadata took after startup.", "cloud"));
+    public static final Family BLOBSTORE_UPLOADS = register(new Family("jclouds_blobstore_uploads_total", "counter",
+            "Files uploaded to a blobstore.", "profile"));
+    public static final Family BLOBSTORE_UPLOAD_BYTES = register(new Family("jclouds_blobstore_upload_bytes_total", "counter",
+            "Bytes uploaded to a blobstore.", "profile"));
+
+    /**
+     * Upper bounds, in seconds, of the histogram buckets rendered for latencies.
+     */
+    private static final double[] LATENCY_BUCKETS = {0.1, 0.5, 1, 2.5, 5, 10, 30, 60, 120, 300, 600, 1800};
+
+    private Metrics() {
+    }
+
+    private static Family register(Family family) {
+        FAMILIES.add(family);
+        return family;
+    }
+
+    /**
+     * Writes all counters and gauges.
+     */
+    public static void write(Writer out) throws IOException {
+        for (Family family : FAMILIES) {
+            family.write(out);
+        }
+    }
+
+    /**
+     * Writes latency histograms, with the series given by their label values in the order of {@code labelNames}.
+     */
+    public static void writeHistogram(Writer out, String name, String help, List<String> labelNames,
+            Map<List<String>, LatencyHistogram> series) throws IOException {
+        out.write("# HELP " + name + " " + help + "\n");
+        out.write("# TYPE " + name + " histogram\n");
+        for (Map.Entry<List<String>, LatencyHistogram> entry : series.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            long count = histogram.getCount();
+            for (double bucket : LATENCY_BUCKETS) {
+                String le = bucket == (long) bucket ? Long.toString((long) bucket) : Double.toString(bucket);
+                long atOrBelow = histogram.getCountAtOrBelow((long) (bucket * 1000));
+                out.write(name + "_bucket" + labels(labelNames, entry.getKey(), "le", le) + " " + atOrBelow + "\n");
+            }
+            out.write(name + "_bucket" + labels(labelNames, entry.getKey(), "le", "+Inf") + " " + count + "\n");
+            out.write(name + "_sum" + labels(labelNames, entry.getKey(), null, null) + " " + histogram.getSum() / 1000.0 + "\n");
+            out.write(name + "_count" + labels(labelNames, entry.getKey(), null, null) + " " + count + "\n");
+        }
+    }
+
+    private static String labels(List<String> names, List<String> values, String extraName, String extraValue) {
+        StringBuilder labels = new StringBuilder();
+        for (int i = 0; i < names.size(); i++) {
+            appendLabel(labels, names.get(i), values.get(i));
+        }
+        if (extraName != null) {
+            appendLabel(labels, extraName, extraValue);
+        }
+        return labels.length() == 0 ? "" : "{" + labels + "}";
+    }
+
+    private static void appendLabel(StringBuilder labels, String name, String value) {
+        if (labels.length() > 0) {
+            labels.append(',');
+        }
+        labels.append(name).append("=\"");
+        String escaped = String.valueOf(value);
+        labels.append(escaped.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n")).append('"');
+    }
+
+    /**
+     * A counter or gauge with its series, keyed by label values.
+     */
+    public static final class Family {
+        private final String name;
+        private final String type;
+        private final String help;
+        private final List<String> labelNames;
+        private final ConcurrentMap<List<String>, AtomicLong> series = new ConcurrentHashMap<List<String>, AtomicLong>();
+
+        Family(String name, String type, String help, String... labelNames) {
+            this.name = name;
+            this.type = type;
+            this.help = help;
+            this.labelNames = Collections.unmodifiableList(Arrays.asList(labelNames));
+        }
+
+        public void inc(String... labelValues) {
+            add(1, labelValues);
+        }
+
+        public void add(long delta, String... labelValues) {
+            series(labelValues).addAndGet(delta);
+        }
+
+        public void set(long value, String... labelValues) {
+            series(labelValues).set(value);
+        }
+
+        /**
+         * Replaces all series of a gauge, dropping the ones that are not in {@code values}.
+         */
+        public void setAll(Map<List<String>, Long> values) {
+            series.keySet().retainAll(values.keySet());
+            for (Map.Entry<List<String>, Long> value : values.entrySet()) {
+                series(value.getKey()).set(value.getValue());
+            }
+        }
+
+        public long get(String... labelValues) {
+            AtomicLong value = series.get(Arrays.asList(labelValues));
+            return value == null ? 0 : value.get();
+        }
+
+        private AtomicLong series(String... labelValues) {
+            return series(Arrays.asList(labelValues));
+        }
+
+        private AtomicLong series(List<String> labelValues) {
+            if (labelValues.size() != labelNames.size()) {
+                throw new IllegalArgumentException(name + " has labels " + labelNames + ", got " + labelValues);
+            }
+            AtomicLong value = series.get(labelValues);
+            if (value == null) {
+                series.putIfAbsent(labelValues, new AtomicLong());
+                value = series.get(labelValues);
+            }
+            return value;
+        }
+
+        void write(Writer out) throws IOException {
+            out.write("# HELP " + name + " " + help + "\n");
+            out.write("# TYPE " + name + " " + type + "\n");
+            for (Map.Entry<List<String>, AtomicLong> value : series.entrySet()) {
+                out.write(name + labels(labelNames, value.getKey(), null, null) + " " + value.getValue().get() + "\n");
+            }
+        }
+    }
+}
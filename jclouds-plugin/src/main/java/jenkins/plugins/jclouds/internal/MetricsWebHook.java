@@ -0,0 +1,97 @@
+package jenkins.plugins.jclouds.internal;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.kohsuke.stapler.StaplerRequest;
+import org.kohsuke.stapler.StaplerResponse;
+
+import hudson.Extension;
+import hudson.model.Node;
+import hudson.model.RootAction;
+import jenkins.model.Jenkins;
+import jenkins.plugins.jclouds.compute.JCloudsSlave;
+import jenkins.plugins.jclouds.compute.internal.LatencyHistogram;
+import jenkins.plugins.jclouds.compute.internal.PhaseTimings;
+import jenkins.plugins.jclouds.compute.internal.ProvisioningPhase;
+import jenkins.plugins.jclouds.compute.internal.ProvisioningTimeline;
+import net.sf.json.JSONObject;
+
+/**
+ * Serves the plugin's {@link Metrics} and provisioning phase latencies in the Prometheus text exposition format, and
+ * the provisioning timelines of the slaves for offline analysis.
+ * <p/>
+ * Scrapers authenticate like any API client and need the administer permission. Rendering reads cached state only, it
+ * never calls a cloud.
+ */
+@Extension
+public class MetricsWebHook implements RootAction {
+
+    public String getIconFileName() {
+        return null;
+    }
+
+    public String getDisplayName() {
+        return null;
+    }
+
+    public String getUrlName() {
+        return URLNAME;
+    }
+
+    public void doIndex(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+        rsp.setContentType("text/plain; version=0.0.4; charset=UTF-8");
+        Writer out = rsp.getCompressedWriter(req);
+        try {
+            Metrics.write(out);
+            Map<List<String>, LatencyHistogram> phases = new LinkedHashMap<List<String>, LatencyHistogram>();
+            for (PhaseTimings timings : PhaseTimings.all()) {
+                for (ProvisioningPhase phase : ProvisioningPhase.values()) {
+                    phases.put(Arrays.asList(timings.getCloudName(), timings.getTemplateName(), phase.name().toLowerCase(Locale.ENGLISH)),
+                            timings.getHistogram(phase));
+                }
+            }
+            Metrics.writeHistogram(out, "jclouds_provisioning_phase_seconds", "Time spent in each provisioning phase.",
+                    Arrays.asList("cloud", "template", "phase"), phases);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Streams the provisioning timeline of every JClouds slave as newline delimited JSON, one slave per line with the
+     * epoch milliseconds of each event it went through.
+     */
+    public void doTimelines(StaplerRequest req, StaplerResponse rsp) throws IOException {
+        Jenkins.getInstance().checkPermission(Jenkins.ADMINISTER);
+        rsp.setContentType("application/x-ndjson; charset=UTF-8");
+        Writer out = rsp.getCompressedWriter(req);
+        try {
+            for (Node node : Jenkins.getInstance().getNodes()) {
+                if (!(node instanceof JCloudsSlave)) {
+                    continue;
+                }
+                JCloudsSlave slave = (JCloudsSlave) node;
+                JSONObject line = new JSONObject();
+                line.put("node", slave.getNodeName());
+                line.put("cloud", slave.getCloudName());
+                line.put("template", slave.getTemplateName());
+                for (ProvisioningTimeline.Entry entry : slave.getTimeline().getEntries()) {
+                    line.put(entry.getEvent().getKey(), entry.getTime());
+                }
+                out.write(line.toString());
+                out.write('\n');
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    public static final String URLNAME = "jclouds-metrics";
+}
@@ -1,12 +1,10 @@
 package jenkins.plugins.jclouds.internal;
 
 import hudson.Extension;
-import hudson.model.Computer;
 import hudson.model.Hudson;
 import hudson.model.RootAction;
 import hudson.model.UnprotectedRootAction;
 import hudson.security.ACL;
-import jenkins.model.Jenkins;
 import org.acegisecurity.Authentication;
 import org.acegisecurity.context.SecurityContextHolder;
 import org.kohsuke.stapler.StaplerRequest;
@@ -14,8 +12,8 @@ import org.kohsuke.stapler.StaplerResponse;
 import org.kohsuke.stapler.interceptor.RequirePOST;
 
 import jenkins.plugins.jclouds.compute.JCloudsComputer;
+import jenkins.plugins.jclouds.compute.JCloudsPoolThread;
 import jenkins.plugins.jclouds.compute.JCloudsSlave;
-import org.jclouds.compute.domain.NodeMetadata;
 
 import java.util.logging.Logger;
 
@@ -56,13 +54,14 @@ public class PhoneHomeWebHook implements UnprotectedRootAction {
         Authentication old = SecurityContextHolder.getContext().getAuthentication();
         SecurityContextHolder.getContext().setAuthentication(ACL.SYSTEM);
         try {
-            for (final Computer c : Jenkins.getInstance().getComputers()) {
-                if (JCloudsComputer.class.isInstance(c)) {
-                    final JCloudsSlave slave = ((JCloudsComputer) c).getNode();
-                    if (slave.getNodeMetaData().getHostname().equals(hostName)) {
-                        slave.setWaitPhoneHome(false);
-                    }
-                }
+            final JCloudsComputer c = JCloudsComputer.getByHostname(hostName);
+            final JCloudsSlave slave = c == null ? null : c.getNode();
+            if (slave != null) {
+                slave.setWaitPhoneHome(false);
+            } else if (JCloudsPoolThread.phonedHome(hostName)) {
+                LOGGER.info("Pooled node with hostname " + hostName + " is ready");
+            } else {
+                LOGGER.warning("No slave with hostname " + hostName + " is known");
             }
         } finally {
             SecurityContextHolder.getContext().setAuthentication(old);
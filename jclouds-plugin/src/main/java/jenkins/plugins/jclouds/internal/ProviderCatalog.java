@@ -0,0 +1,98 @@
+package jenkins.plugins.jclouds.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.jclouds.View;
+import org.jclouds.apis.ApiMetadata;
+import org.jclouds.apis.Apis;
+import org.jclouds.providers.ProviderMetadata;
+import org.jclouds.providers.Providers;
+
+/**
+ * The ids of the jclouds apis and providers that support a view, sorted.
+ * <p/>
+ * The service loader scan runs once per view; the catalog lives as long as the plugin's classes, so a plugin reload
+ * scans again. Prefix lookups binary search the sorted ids and return a view of them.
+ */
+public final class ProviderCatalog {
+    private static final ConcurrentMap<Class<? extends View>, ProviderCatalog> CATALOGS =
+            new ConcurrentHashMap<Class<? extends View>, ProviderCatalog>();
+
+    private final String[] ids;
+    private final List<String> idList;
+
+    ProviderCatalog(String[] sortedIds) {
+        this.ids = sortedIds;
+        this.idList = Collections.unmodifiableList(Arrays.asList(sortedIds));
+    }
+
+    public static ProviderCatalog of(Class<? extends View> view) {
+        ProviderCatalog catalog = CATALOGS.get(view);
+        if (catalog == null) {
+            catalog = scan(view);
+            ProviderCatalog raced = CATALOGS.putIfAbsent(view, catalog);
+            if (raced != null) {
+                catalog = raced;
+            }
+        }
+        return catalog;
+    }
+
+    private static ProviderCatalog scan(Class<? extends View> view) {
+        Thread thread = Thread.currentThread();
+        ClassLoader previous = thread.getContextClassLoader();
+        // correct the classloader so that extensions can be found
+        thread.setContextClassLoader(Apis.class.getClassLoader());
+        try {
+            SortedSet<String> ids = new TreeSet<String>();
+            for (ApiMetadata api : Apis.viewableAs(view)) {
+                ids.add(api.getId());
+            }
+            for (ProviderMetadata provider : Providers.viewableAs(view)) {
+                ids.add(provider.getId());
+            }
+            return new ProviderCatalog(ids.toArray(new String[ids.size()]));
+        } finally {
+            thread.setContextClassLoader(previous);
+        }
+    }
+
+    /**
+     * All ids, sorted.
+     */
+    public List<String> getIds() {
+        return idList;
+    }
+
+    /**
+     * The ids starting with {@code prefix}, sorted.
+     */
+    public List<String> withPrefix(String prefix) {
+        int from = lowerBound(prefix);
+        int to = from;
+        while (to < ids.length && ids[to].startsWith(prefix)) {
+            to++;
+        }
+        return idList.subList(from, to);
+    }
+
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = ids.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (ids[mid].compareTo(key) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
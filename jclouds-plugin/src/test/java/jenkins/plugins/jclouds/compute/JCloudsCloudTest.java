@@ -1,6 +1,8 @@
 package jenkins.plugins.jclouds.compute;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.concurrent.ExecutionException;
 
 import org.junit.Rule;
 import org.junit.Test;
@@ -11,8 +13,17 @@ import com.gargoylesoftware.htmlunit.html.HtmlButton;
 import com.gargoylesoftware.htmlunit.html.HtmlForm;
 import com.gargoylesoftware.htmlunit.html.HtmlPage;
 
+import hudson.model.Label;
+import hudson.slaves.NodeProvisioner.PlannedNode;
+import jenkins.plugins.jclouds.compute.internal.ApiOperation;
+import jenkins.plugins.jclouds.compute.internal.QuotaLedger;
+
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * @author Vijay Kiran
@@ -70,4 +81,59 @@ public class JCloudsCloudTest {
                 "profile,providerName,identity,credential,privateKey,publicKey,endPointUrl,instanceCap,retentionTime");
     }
 
+    @Test
+    public void testSavedCloudKeepsExecutorBreakerAndRateLimits() throws Exception {
+        JCloudsCloud original = StubClouds.cloud("saved", 5, StubClouds.template("linux", "linux"));
+        j.jenkins.clouds.add(original);
+        // a node still being created while the configuration is saved
+        QuotaLedger.Reservation creating = original.getQuotaLedger().reserve(1, 512);
+        j.configRoundtrip();
+
+        JCloudsCloud saved = JCloudsCloud.getByName("saved");
+        assertNotSame(original, saved);
+        assertSame(original.getExecutor(), saved.getExecutor());
+        assertSame(original.getCircuitBreaker(), saved.getCircuitBreaker());
+        assertSame(original.getRateLimiter(ApiOperation.CREATE), saved.getRateLimiter(ApiOperation.CREATE));
+        assertSame(original.getInventory(), saved.getInventory());
+        assertEquals(1, saved.getQuotaLedger().getReservedInstances());
+        assertEquals(4, saved.getInstanceHeadroom());
+
+        creating.release();
+        assertEquals(0, saved.getQuotaLedger().getReservedInstances());
+    }
+
+    @Test
+    public void testLabelWithoutTemplatePlansNothing() throws Exception {
+        JCloudsCloud cloud = StubClouds.cloud("unmatched", 5, StubClouds.template("linux", "linux"));
+        j.jenkins.clouds.add(cloud);
+
+        assertTrue(cloud.provision(Label.get("windows"), 1).isEmpty());
+    }
+
+    @Test
+    public void testHalfOpenBreakerPlansOneProbe() throws Exception {
+        // the breaker opens on the first failure and lets a probe through right away
+        System.setProperty("jclouds.plugin.breakerFailures", "1");
+        System.setProperty("jclouds.plugin.breakerOpenSec", "0");
+        JCloudsCloud cloud;
+        try {
+            // the stub has no image matching the regex, so every create fails
+            cloud = StubClouds.cloud("failing", 10, StubClouds.template("broken", "broken", "missing-.*", ""));
+        } finally {
+            System.clearProperty("jclouds.plugin.breakerFailures");
+            System.clearProperty("jclouds.plugin.breakerOpenSec");
+        }
+        j.jenkins.clouds.add(cloud);
+
+        Collection<PlannedNode> failed = cloud.provision(Label.get("broken"), 1);
+        assertEquals(1, failed.size());
+        try {
+            failed.iterator().next().future.get();
+            fail("the create should have failed");
+        } catch (ExecutionException expected) {
+        }
+        assertTrue(cloud.getCircuitBreaker().isHalfOpen());
+
+        assertEquals(1, cloud.provision(Label.get("broken"), 5).size());
+    }
 }
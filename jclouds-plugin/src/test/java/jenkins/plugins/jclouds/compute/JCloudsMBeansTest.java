@@ -0,0 +1,85 @@
+package jenkins.plugins.jclouds.compute;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMX;
+import javax.management.MBeanServer;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import hudson.model.Label;
+
+import static jenkins.plugins.jclouds.compute.StubClouds.cloud;
+import static jenkins.plugins.jclouds.compute.StubClouds.template;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JCloudsMBeansTest {
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testBeansFollowConfiguredClouds() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        JCloudsCloud cloud = cloud("mbeans", 5, template("linux", "linux"));
+        j.jenkins.clouds.add(cloud);
+        JCloudsMBeans.sync();
+        assertTrue(server.isRegistered(JCloudsMBeans.cloudName("mbeans")));
+        assertTrue(server.isRegistered(JCloudsMBeans.templateName("mbeans", "linux")));
+
+        j.jenkins.clouds.remove(cloud);
+        JCloudsMBeans.sync();
+        assertFalse(server.isRegistered(JCloudsMBeans.cloudName("mbeans")));
+        assertFalse(server.isRegistered(JCloudsMBeans.templateName("mbeans", "linux")));
+    }
+
+    @Test
+    public void testPauseAndDrainStopProvisioning() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        JCloudsSlaveTemplate template = template("linux", "linux");
+        JCloudsCloud cloud = cloud("paused", 5, template);
+        j.jenkins.clouds.add(cloud);
+        JCloudsMBeans.sync();
+
+        JCloudsCloudMXBean cloudBean = JMX.newMXBeanProxy(server, JCloudsMBeans.cloudName("paused"), JCloudsCloudMXBean.class);
+        assertEquals(5, cloudBean.getInstanceCap());
+        assertEquals(0, cloudBean.getInFlightCreates());
+        assertEquals(2.0, cloudBean.getCreateRatePerSecond(), 0.001);
+        assertEquals(10, cloudBean.getCreateBurst());
+        assertFalse(cloudBean.isCircuitBreakerOpen());
+
+        cloudBean.pauseProvisioning();
+        assertTrue(cloud.isProvisioningPaused());
+        assertTrue(cloud.provision(Label.get("linux"), 1).isEmpty());
+        cloudBean.resumeProvisioning();
+        assertFalse(cloud.isProvisioningPaused());
+
+        JCloudsTemplateMXBean templateBean = JMX.newMXBeanProxy(server, JCloudsMBeans.templateName("paused", "linux"),
+                JCloudsTemplateMXBean.class);
+        assertEquals("linux", templateBean.getLabels());
+        templateBean.drain();
+        assertTrue(template.isDraining());
+        assertTrue(cloud.provision(Label.get("linux"), 1).isEmpty());
+        templateBean.undrain();
+        assertFalse(template.isDraining());
+    }
+
+    @Test
+    public void testPauseAndDrainSurviveConfigSave() throws Exception {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        j.jenkins.clouds.add(cloud("saved", 5, template("linux", "linux"), template("windows", "windows")));
+        JCloudsMBeans.sync();
+        JMX.newMXBeanProxy(server, JCloudsMBeans.cloudName("saved"), JCloudsCloudMXBean.class).pauseProvisioning();
+        JMX.newMXBeanProxy(server, JCloudsMBeans.templateName("saved", "linux"), JCloudsTemplateMXBean.class).drain();
+
+        j.configRoundtrip();
+
+        JCloudsCloud saved = JCloudsCloud.getByName("saved");
+        assertTrue(saved.isProvisioningPaused());
+        assertTrue(saved.getTemplate("linux").isDraining());
+        assertFalse(saved.getTemplate("windows").isDraining());
+    }
+}
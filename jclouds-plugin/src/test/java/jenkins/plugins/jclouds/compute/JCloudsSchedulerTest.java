@@ -0,0 +1,52 @@
+package jenkins.plugins.jclouds.compute;
+
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import static jenkins.plugins.jclouds.compute.StubClouds.cloud;
+import static jenkins.plugins.jclouds.compute.StubClouds.template;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class JCloudsSchedulerTest {
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    @Test
+    public void testDemandSpillsOverToCloudWithHeadroom() throws Exception {
+        JCloudsSlaveTemplate full = template("spill", "centos7 docker");
+        JCloudsSlaveTemplate roomy = template("spill", "centos7 docker");
+        JCloudsSlaveTemplate other = template("spill", "windows");
+        j.jenkins.clouds.add(cloud("full", 0, full));
+        j.jenkins.clouds.add(cloud("roomy", 5, roomy));
+        j.jenkins.clouds.add(cloud("other", 5, other));
+
+        List<JCloudsSlaveTemplate> ranked = JCloudsScheduler.rank(full);
+        assertEquals(2, ranked.size());
+        assertSame(roomy, ranked.get(0));
+        // the asking cloud stays last, for its warm pool
+        assertSame(full, ranked.get(1));
+    }
+
+    @Test
+    public void testFailuresAndLatencyLowerTheRank() throws Exception {
+        JCloudsSlaveTemplate failing = template("spill", "ubuntu");
+        JCloudsSlaveTemplate slow = template("spill", "ubuntu");
+        JCloudsSlaveTemplate healthy = template("spill", "ubuntu");
+        j.jenkins.clouds.add(cloud("failing", 5, failing));
+        j.jenkins.clouds.add(cloud("slow", 5, slow));
+        j.jenkins.clouds.add(cloud("healthy", 5, healthy));
+
+        failing.getCloud().getCircuitBreaker().onFailure();
+        failing.getCloud().getCircuitBreaker().onFailure();
+        slow.getCloud().getProvisioningLatency().record(60000);
+
+        List<JCloudsSlaveTemplate> ranked = JCloudsScheduler.rank(failing);
+        assertSame(healthy, ranked.get(0));
+        assertSame(slow, ranked.get(1));
+        assertSame(failing, ranked.get(2));
+    }
+}
@@ -1,10 +1,19 @@
 package jenkins.plugins.jclouds.compute;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+import org.jclouds.compute.domain.Template;
+
 import org.jvnet.hudson.test.HudsonTestCase;
 
+import shaded.com.google.common.collect.Iterables;
+
 /**
  * @author Vijay Kiran
  */
@@ -15,7 +24,7 @@ public class JCloudsSlaveTemplateTest extends HudsonTestCase {
         JCloudsSlaveTemplate originalTemplate = new JCloudsSlaveTemplate(name, "imageId", null, "hardwareId", 1, 512, "osFamily", "osVersion", "locationId",
                 "jclouds-slave-type1 jclouds-type2", "Description", "initScript", null, "1", false, null, null, true,
                 "jvmOptions", false, null, false,
-                false, 5, 0, true, "nova", "192.168.8", false, 0, "jenkins", true, "network1_id,network2_id", "security_group1,security_group2", null);
+                false, 5, 0, true, "nova", "192.168.8", false, 0, "jenkins", true, "network1_id,network2_id", "security_group1,security_group2", null, 0, 0);
 
         List<JCloudsSlaveTemplate> templates = new ArrayList<JCloudsSlaveTemplate>();
         templates.add(originalTemplate);
@@ -33,4 +42,59 @@ public class JCloudsSlaveTemplateTest extends HudsonTestCase {
 
     }
 
+    public void testResolvedTemplateIsCached() throws Exception {
+        JCloudsSlaveTemplate template = StubClouds.template("cached", "cached", "golden-.*", "");
+        JCloudsCloud cloud = StubClouds.cloud("stub-profile", 1, template);
+        hudson.clouds.add(cloud);
+
+        // a synthetic catalog of 10k golden images, the newest of which is one the stub can boot
+        String bootable = Iterables.get(cloud.getCompute().listImages(), 0).getId();
+        OperatingSystem os = OperatingSystem.builder().family(OsFamily.UBUNTU).description("ubuntu").build();
+        List<Image> images = new ArrayList<Image>();
+        for (int i = 1; i <= 10000; i++) {
+            String id = i == 10000 ? bootable : "synthetic-" + i;
+            images.add(new ImageBuilder().id(id).providerId(id).name(String.format("golden-%05d", i)).operatingSystem(os)
+                    .status(Image.Status.AVAILABLE).build());
+        }
+        cloud.getImageCatalog().refresh(images, Collections.singletonList("golden-.*"));
+
+        Template resolved = template.buildTemplate();
+        assertEquals(bootable, resolved.getImage().getId());
+        JCloudsSlaveTemplate.ResolvedIds ids = template.getResolvedIds();
+        assertNotNull(ids);
+
+        // every full resolution stores new ids, so the same ones mean the second build skipped it
+        Template cached = template.buildTemplate();
+        assertSame(ids, template.getResolvedIds());
+        assertEquals(resolved.getImage().getId(), cached.getImage().getId());
+        assertEquals(resolved.getHardware().getId(), cached.getHardware().getId());
+        assertEquals(resolved.getLocation().getId(), cached.getLocation().getId());
+    }
+
+    public void testStaleCatalogImageIsNotPinned() throws Exception {
+        JCloudsSlaveTemplate template = StubClouds.template("stale", "stale", ".*", "");
+        JCloudsCloud cloud = StubClouds.cloud("stub-profile", 1, template);
+        hudson.clouds.add(cloud);
+
+        OperatingSystem os = OperatingSystem.builder().family(OsFamily.UBUNTU).description("ubuntu").build();
+        cloud.getImageCatalog().refresh(Collections.singletonList(new ImageBuilder().id("deleted").providerId("deleted")
+                .name("zzz").operatingSystem(os).status(Image.Status.AVAILABLE).build()), Collections.singletonList(".*"));
+
+        Template resolved = template.buildTemplate();
+        assertFalse("deleted".equals(resolved.getImage().getId()));
+    }
+
+    public void testOsFamilyTemplateIsCached() throws Exception {
+        JCloudsSlaveTemplate template = StubClouds.template("family", "family", null, "ubuntu");
+        JCloudsCloud cloud = StubClouds.cloud("stub-profile", 1, template);
+        hudson.clouds.add(cloud);
+
+        Template resolved = template.buildTemplate();
+        assertEquals(OsFamily.UBUNTU, resolved.getImage().getOperatingSystem().getFamily());
+
+        Template cached = template.buildTemplate();
+        assertEquals(resolved.getImage().getId(), cached.getImage().getId());
+        assertEquals(resolved.getHardware().getId(), cached.getHardware().getId());
+    }
+
 }
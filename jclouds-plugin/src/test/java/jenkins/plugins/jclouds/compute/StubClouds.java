@@ -0,0 +1,33 @@
+package jenkins.plugins.jclouds.compute;
+
+import java.util.Arrays;
+
+/**
+ * Clouds and templates on the jclouds stub provider, for tests that only care about a few of their settings.
+ */
+final class StubClouds {
+
+    private StubClouds() {
+    }
+
+    /**
+     * A cloud whose identity is its name, so that clouds of one test don't share stub nodes.
+     */
+    static JCloudsCloud cloud(String name, int instanceCap, JCloudsSlaveTemplate... templates) {
+        return new JCloudsCloud(name, "stub", name, "credential", null, null, null, null, instanceCap, 30, 0, 0, null,
+                Arrays.asList(templates));
+    }
+
+    static JCloudsSlaveTemplate template(String name, String labels) {
+        return template(name, labels, null, "");
+    }
+
+    /**
+     * A template that picks its image by name regex, or by OS family if the regex is {@code null}.
+     */
+    static JCloudsSlaveTemplate template(String name, String labels, String imageNameRegex, String osFamily) {
+        return new JCloudsSlaveTemplate(name, null, imageNameRegex, null, 1, 512, osFamily, "", null, labels, "", "", null, "1",
+                false, null, null, true, null, true, null, false, false, 0, 0, false, null, null, false, 0, null, false, null,
+                null, null, 0, 0);
+    }
+}
@@ -0,0 +1,52 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class BulkheadExecutorTest extends TestCase {
+
+    public void testWorkBeyondQueueIsRejectedAndCounted() throws Exception {
+        BulkheadExecutor executor = new BulkheadExecutor("slow-cloud", 2, 3);
+        final CountDownLatch release = new CountDownLatch(1);
+        Runnable blocked = new Runnable() {
+            public void run() {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        };
+        // two running and three queued
+        for (int i = 0; i < 5; i++) {
+            executor.submit(blocked);
+        }
+        assertEquals(3, executor.getQueueDepth());
+        try {
+            executor.submit(blocked);
+            fail("queue is full");
+        } catch (RejectedExecutionException e) {
+            assertTrue(e.getMessage().contains("slow-cloud"));
+        }
+        assertEquals(1, executor.getRejectedCount());
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    public void testThreadsAreNamedAfterCloud() throws Exception {
+        BulkheadExecutor executor = new BulkheadExecutor("named-cloud", 1, 1);
+        String name = executor.submit(new Callable<String>() {
+            public String call() {
+                return Thread.currentThread().getName();
+            }
+        }).get(10, TimeUnit.SECONDS);
+        assertTrue(name, name.contains("named-cloud"));
+        executor.shutdown();
+    }
+}
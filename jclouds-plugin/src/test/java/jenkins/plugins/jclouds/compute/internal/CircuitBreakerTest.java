@@ -0,0 +1,45 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import junit.framework.TestCase;
+
+public class CircuitBreakerTest extends TestCase {
+
+    public void testOpensAfterConsecutiveFailures() {
+        CircuitBreaker breaker = new CircuitBreaker(3, 60000);
+        breaker.onFailure();
+        breaker.onFailure();
+        breaker.onSuccess();
+        breaker.onFailure();
+        breaker.onFailure();
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.tryAcquire());
+
+        breaker.onFailure();
+        assertTrue(breaker.isOpen());
+        assertFalse(breaker.tryAcquire());
+    }
+
+    public void testSingleProbeAfterOpenPeriod() throws Exception {
+        CircuitBreaker breaker = new CircuitBreaker(1, 50);
+        breaker.onFailure();
+        assertFalse(breaker.tryAcquire());
+
+        assertFalse(breaker.isHalfOpen());
+        Thread.sleep(60);
+        assertFalse(breaker.isOpen());
+        assertTrue(breaker.isHalfOpen());
+        assertTrue("probe", breaker.tryAcquire());
+        assertFalse(breaker.isHalfOpen());
+        assertFalse("only one probe per period", breaker.tryAcquire());
+
+        // a failed probe keeps it open for another period
+        breaker.onFailure();
+        assertTrue(breaker.isOpen());
+        Thread.sleep(60);
+        assertTrue(breaker.tryAcquire());
+        breaker.onSuccess();
+        assertFalse(breaker.isHalfOpen());
+        assertTrue(breaker.tryAcquire());
+        assertTrue(breaker.tryAcquire());
+    }
+}
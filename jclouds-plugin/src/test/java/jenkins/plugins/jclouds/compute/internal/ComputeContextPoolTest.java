@@ -0,0 +1,63 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.compute.ComputeServiceContext;
+
+import shaded.com.google.common.base.Supplier;
+
+import junit.framework.TestCase;
+
+public class ComputeContextPoolTest extends TestCase {
+
+    private final AtomicInteger built = new AtomicInteger();
+
+    private final Supplier<ComputeServiceContext> factory = new Supplier<ComputeServiceContext>() {
+        public ComputeServiceContext get() {
+            built.incrementAndGet();
+            return ContextBuilder.newBuilder("stub").credentials("pool", "credential").buildView(ComputeServiceContext.class);
+        }
+    };
+
+    public void testLeasesShareContextOfSameAccount() {
+        ComputeContextPool pool = new ComputeContextPool(4, 60000);
+        ComputeContextPool.Lease first = pool.acquire(null, "stub", "pool", "credential", new Properties(), factory);
+        ComputeContextPool.Lease second = pool.acquire(null, "stub", "pool", "credential", new Properties(), factory);
+        assertSame(first.getContext(), second.getContext());
+
+        ComputeContextPool.Lease other = pool.acquire(null, "stub", "pool", "other-credential", new Properties(), factory);
+        assertNotSame(first.getContext(), other.getContext());
+        assertEquals(2, built.get());
+        assertEquals(2, pool.size());
+        first.close();
+        second.close();
+        other.close();
+    }
+
+    public void testIdleContextsAreEvicted() {
+        ComputeContextPool pool = new ComputeContextPool(4, 0);
+        ComputeContextPool.Lease lease = pool.acquire(null, "stub", "pool", "credential", new Properties(), factory);
+        pool.evict();
+        assertEquals("leased contexts stay", 1, pool.size());
+
+        lease.close();
+        // closing twice must not release someone else's lease
+        lease.close();
+        assertEquals(0, pool.size());
+
+        pool.acquire(null, "stub", "pool", "credential", new Properties(), factory).close();
+        assertEquals(2, built.get());
+    }
+
+    public void testSizeLimitOnlyEvictsUnusedContexts() {
+        ComputeContextPool pool = new ComputeContextPool(1, 60000);
+        Object owner = new Object();
+        ComputeContextPool.Lease owned = pool.acquire(owner, "stub", "pool", "a", new Properties(), factory);
+        pool.acquire(null, "stub", "pool", "b", new Properties(), factory).close();
+        assertEquals(1, pool.size());
+        assertSame(owned.getContext(), pool.acquire(owner, "stub", "pool", "a", new Properties(), factory).getContext());
+        assertEquals(2, built.get());
+    }
+}
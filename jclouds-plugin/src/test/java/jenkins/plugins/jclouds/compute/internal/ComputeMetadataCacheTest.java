@@ -0,0 +1,74 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.domain.Hardware;
+
+import shaded.com.google.common.base.Function;
+import shaded.com.google.common.base.Supplier;
+
+import junit.framework.TestCase;
+
+public class ComputeMetadataCacheTest extends TestCase {
+
+    private final ComputeContextPool pool = new ComputeContextPool(4, 60000);
+    private final AtomicInteger listings = new AtomicInteger();
+    private ExecutorService executor;
+
+    private final Function<ComputeMetadataCache.Account, ComputeContextPool.Lease> leases =
+            new Function<ComputeMetadataCache.Account, ComputeContextPool.Lease>() {
+                public ComputeContextPool.Lease apply(final ComputeMetadataCache.Account account) {
+                    listings.incrementAndGet();
+                    return pool.acquire(null, account.providerName, account.identity, account.credential, new Properties(),
+                            new Supplier<ComputeServiceContext>() {
+                                public ComputeServiceContext get() {
+                                    return ContextBuilder.newBuilder(account.providerName).credentials(account.identity, account.credential)
+                                            .buildView(ComputeServiceContext.class);
+                                }
+                            });
+                }
+            };
+
+    @Override
+    protected void setUp() throws Exception {
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    public void testListingsAreServedFromMemory() {
+        ComputeMetadataCache cache = new ComputeMetadataCache(leases, executor, 60000, 60000);
+        ComputeMetadataCache.Account account = new ComputeMetadataCache.Account("stub", getName(), "credential", null, null);
+
+        List<Hardware> hardware = cache.getHardwareProfiles(account);
+        assertFalse(hardware.isEmpty());
+        assertSame(hardware, cache.getHardwareProfiles(account));
+        assertSame(hardware, cache.getHardwareProfiles(new ComputeMetadataCache.Account("stub", getName(), "credential", null, null)));
+        assertFalse(cache.getLocations(account).isEmpty());
+        assertEquals(2, listings.get());
+        assertEquals("listings return their lease", 1, pool.size());
+    }
+
+    public void testStaleListingIsReturnedWhileReloading() throws Exception {
+        ComputeMetadataCache cache = new ComputeMetadataCache(leases, executor, 1, 60000);
+        ComputeMetadataCache.Account account = new ComputeMetadataCache.Account("stub", getName(), "credential", null, null);
+
+        List<Hardware> hardware = cache.getHardwareProfiles(account);
+        Thread.sleep(10);
+        // the stale listing comes back at once, the reload runs on the executor
+        assertSame(hardware, cache.getHardwareProfiles(account));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+        assertEquals(2, listings.get());
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,86 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class DebouncedSaverTest extends TestCase {
+
+    private final List<String> saved = new CopyOnWriteArrayList<String>();
+    private ScheduledExecutorService timer;
+
+    @Override
+    protected void setUp() {
+        timer = Executors.newSingleThreadScheduledExecutor();
+    }
+
+    @Override
+    protected void tearDown() {
+        timer.shutdownNow();
+    }
+
+    public void testChangesWithinWindowAreCoalesced() {
+        DebouncedSaver<String> saver = new DebouncedSaver<String>(recording(), timer, TimeUnit.HOURS.toMillis(1));
+        saver.markDirty("a");
+        saver.markDirty("a");
+        saver.markDirty("b");
+        saver.markDirty("a");
+        assertTrue(saved.isEmpty());
+        assertEquals(2, saver.getPending());
+
+        saver.flush();
+        assertEquals(2, saved.size());
+        assertTrue(saved.contains("a"));
+        assertTrue(saved.contains("b"));
+        assertEquals(0, saver.getPending());
+    }
+
+    public void testFlushesAfterWindow() throws Exception {
+        final CountDownLatch latch = new CountDownLatch(1);
+        DebouncedSaver<String> saver = new DebouncedSaver<String>(new DebouncedSaver.Store<String>() {
+            public void save(String item) {
+                saved.add(item);
+                latch.countDown();
+            }
+        }, timer, 50);
+        saver.markDirty("a");
+        assertTrue(latch.await(10, TimeUnit.SECONDS));
+        assertEquals(1, saved.size());
+    }
+
+    public void testNoWindowSavesRightAway() {
+        DebouncedSaver<String> saver = new DebouncedSaver<String>(recording(), timer, 0);
+        saver.markDirty("a");
+        saver.markDirty("a");
+        assertEquals(2, saved.size());
+    }
+
+    public void testFailedSaveDoesNotStopOthers() {
+        DebouncedSaver<String> saver = new DebouncedSaver<String>(new DebouncedSaver.Store<String>() {
+            public void save(String item) throws IOException {
+                if (item.equals("bad")) {
+                    throw new IOException("disk full");
+                }
+                saved.add(item);
+            }
+        }, timer, TimeUnit.HOURS.toMillis(1));
+        saver.markDirty("bad");
+        saver.markDirty("good");
+        saver.flush();
+        assertEquals(1, saved.size());
+    }
+
+    private DebouncedSaver.Store<String> recording() {
+        return new DebouncedSaver.Store<String>() {
+            public void save(String item) {
+                saved.add(item);
+            }
+        };
+    }
+}
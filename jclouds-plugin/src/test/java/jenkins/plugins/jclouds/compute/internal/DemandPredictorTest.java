@@ -0,0 +1,177 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Iterator;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.RunNodesException;
+import org.jclouds.compute.domain.NodeMetadata;
+
+import junit.framework.TestCase;
+
+/**
+ * Includes a replay harness that runs a recorded queue trace against the stub provider, once provisioning only for
+ * the current demand and once ahead of the predicted demand, and compares how long the queue waited for nodes.
+ */
+public class DemandPredictorTest extends TestCase {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+    private static final long LEAD = TimeUnit.MINUTES.toMillis(15);
+    private static final int BOOT_MINUTES = 5;
+    private static final int RETENTION_MINUTES = 30;
+
+    private ComputeService compute;
+
+    @Override
+    protected void setUp() throws Exception {
+        compute = ContextBuilder.newBuilder("stub").credentials(getName(), "credential").buildView(ComputeServiceContext.class)
+                .getComputeService();
+    }
+
+    public void testPredictsPeakOfSameHourOfWeek() {
+        DemandPredictor predictor = new DemandPredictor(null);
+        long monday9 = monday() + TimeUnit.HOURS.toMillis(9);
+        predictor.record("t", monday9, 3);
+        predictor.record("t", monday9 + 10 * MINUTE, 6);
+        predictor.record("t", monday9 + TimeUnit.HOURS.toMillis(1), 1);
+
+        long nextMonday9 = monday9 + TimeUnit.DAYS.toMillis(7);
+        assertEquals(6, predictor.predict("t", nextMonday9, 0));
+        assertEquals(6, predictor.predict("t", nextMonday9 - 10 * MINUTE, LEAD));
+        assertEquals(0, predictor.predict("t", nextMonday9 - TimeUnit.HOURS.toMillis(2), LEAD));
+        assertEquals(0, predictor.predict("other", nextMonday9, 0));
+    }
+
+    public void testHistorySurvivesSaveAndLoad() throws IOException {
+        File file = File.createTempFile("demand", ".dat");
+        try {
+            long monday9 = monday() + TimeUnit.HOURS.toMillis(9);
+            DemandPredictor predictor = new DemandPredictor(file);
+            predictor.record("t", monday9, 4);
+            predictor.record("t", monday9 + TimeUnit.HOURS.toMillis(1), 2);
+            predictor.save();
+            assertTrue(file.length() < 1024);
+
+            DemandPredictor loaded = new DemandPredictor(file);
+            loaded.load();
+            assertEquals(4, loaded.predict("t", monday9, 0));
+            // the open hour is restored too and folded in once it is over
+            loaded.record("t", monday9 + TimeUnit.HOURS.toMillis(2), 0);
+            assertEquals(2, loaded.predict("t", monday9 + TimeUnit.HOURS.toMillis(1), 0));
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testReplayReducesWaitTime() throws Exception {
+        TreeMap<Integer, Integer> trace = loadTrace();
+        int minutes = trace.lastKey() + 1440;
+        int lastWeek = minutes - (int) TimeUnit.DAYS.toMinutes(7);
+        long start = monday();
+
+        DemandPredictor predictor = new DemandPredictor(null);
+        Simulation reactive = new Simulation("reactive");
+        Simulation predictive = new Simulation("predictive");
+        for (int minute = 0; minute < minutes; minute++) {
+            long now = start + minute * MINUTE;
+            int demand = trace.floorEntry(minute) == null ? 0 : trace.floorEntry(minute).getValue();
+            boolean measured = minute >= lastWeek;
+
+            reactive.step(minute, demand, demand, measured);
+            predictive.step(minute, demand, Math.max(demand, predictor.predict("t", now, LEAD)), measured);
+            predictor.record("t", now, demand);
+        }
+
+        double reduction = 100.0 * (reactive.waited - predictive.waited) / reactive.waited;
+        assertTrue(reactive.waited > 0);
+        assertTrue(String.format("last week waited %d node-minutes reactive, %d predictive (%.0f%% less)",
+                reactive.waited, predictive.waited, reduction), reduction > 50);
+    }
+
+    private TreeMap<Integer, Integer> loadTrace() throws IOException {
+        TreeMap<Integer, Integer> trace = new TreeMap<Integer, Integer>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(getClass().getResourceAsStream("queue-trace.csv"), "UTF-8"));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.startsWith("#") || line.trim().isEmpty()) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                trace.put(Integer.parseInt(fields[0].trim()), Integer.parseInt(fields[1].trim()));
+            }
+        } finally {
+            reader.close();
+        }
+        return trace;
+    }
+
+    private static long monday() {
+        Calendar calendar = Calendar.getInstance();
+        calendar.set(Calendar.DAY_OF_WEEK, Calendar.MONDAY);
+        calendar.set(Calendar.HOUR_OF_DAY, 0);
+        calendar.set(Calendar.MINUTE, 0);
+        calendar.set(Calendar.SECOND, 0);
+        calendar.set(Calendar.MILLISECOND, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    /**
+     * Nodes of one provisioning strategy: booting nodes become ready after {@link #BOOT_MINUTES}, nodes above the
+     * target are destroyed after {@link #RETENTION_MINUTES}.
+     */
+    private class Simulation {
+        final String group;
+        final List<NodeMetadata> ready = new ArrayList<NodeMetadata>();
+        final TreeMap<Integer, List<NodeMetadata>> booting = new TreeMap<Integer, List<NodeMetadata>>();
+        int bootingCount;
+        int surplusMinutes;
+        long waited;
+
+        Simulation(String group) {
+            this.group = group;
+        }
+
+        void step(int minute, int demand, int target, boolean measured) throws RunNodesException {
+            for (Iterator<List<NodeMetadata>> it = booting.headMap(minute, true).values().iterator(); it.hasNext(); ) {
+                List<NodeMetadata> nodes = it.next();
+                ready.addAll(nodes);
+                bootingCount -= nodes.size();
+                it.remove();
+            }
+            if (measured) {
+                waited += Math.max(0, demand - ready.size());
+            }
+
+            int missing = target - ready.size() - bootingCount;
+            if (missing > 0) {
+                List<NodeMetadata> nodes = new ArrayList<NodeMetadata>(compute.createNodesInGroup(group, missing));
+                booting.put(minute + BOOT_MINUTES, nodes);
+                bootingCount += nodes.size();
+                surplusMinutes = 0;
+            } else if (missing < 0 && ++surplusMinutes >= RETENTION_MINUTES) {
+                for (int i = 0; i < -missing && !ready.isEmpty(); i++) {
+                    compute.destroyNode(ready.remove(ready.size() - 1).getId());
+                }
+                surplusMinutes = 0;
+            } else if (missing == 0) {
+                surplusMinutes = 0;
+            }
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        compute.getContext().close();
+    }
+}
@@ -0,0 +1,76 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.jclouds.compute.domain.Image;
+import org.jclouds.compute.domain.ImageBuilder;
+import org.jclouds.compute.domain.OperatingSystem;
+import org.jclouds.compute.domain.OsFamily;
+
+import shaded.com.google.common.collect.ImmutableList;
+import shaded.com.google.common.collect.Lists;
+
+import junit.framework.TestCase;
+
+public class ImageCatalogTest extends TestCase {
+
+    public void testNewestMatch() {
+        ImageCatalog catalog = new ImageCatalog();
+        assertNull(catalog.getNewestMatch("golden-.*"));
+
+        List<Image> images = new ArrayList<Image>();
+        images.add(image("1", "golden-20160101"));
+        images.add(image("2", "golden-20160301"));
+        images.add(image("3", "other-20160401"));
+        catalog.refresh(images, ImmutableList.of("golden-.*"));
+
+        assertEquals("2", catalog.getNewestMatch("golden-.*"));
+        // regexes unknown at refresh time are computed on demand
+        assertEquals("3", catalog.getNewestMatch("other-.*"));
+        assertNull(catalog.getNewestMatch("missing-.*"));
+
+        images.add(image("4", "golden-20160501"));
+        catalog.refresh(images, ImmutableList.of("golden-.*"));
+        assertEquals("4", catalog.getNewestMatch("golden-.*"));
+    }
+
+    public void testNewestMatchComparesNumbersByValue() {
+        ImageCatalog catalog = new ImageCatalog();
+        List<Image> images = new ArrayList<Image>();
+        images.add(image("10", "golden-10"));
+        images.add(image("9", "golden-9"));
+        images.add(image("2", "golden-2.10"));
+        images.add(image("1", "golden-2.9"));
+        catalog.refresh(images, ImmutableList.of("golden-\\d+", "golden-2\\..*"));
+
+        assertEquals("10", catalog.getNewestMatch("golden-\\d+"));
+        assertEquals("2", catalog.getNewestMatch("golden-2\\..*"));
+    }
+
+    public void testDuplicateNamesAreOrderedById() {
+        ImageCatalog catalog = new ImageCatalog();
+        List<Image> images = new ArrayList<Image>();
+        images.add(image("b", "golden-1"));
+        images.add(image("a", "golden-1"));
+        catalog.refresh(images, ImmutableList.of("golden-.*"));
+        assertEquals("b", catalog.getNewestMatch("golden-.*"));
+
+        catalog.refresh(Lists.reverse(images), ImmutableList.of("golden-.*"));
+        assertEquals("b", catalog.getNewestMatch("golden-.*"));
+    }
+
+    public void testCompareNatural() {
+        assertTrue(ImageCatalog.compareNatural("golden-10", "golden-9") > 0);
+        assertTrue(ImageCatalog.compareNatural("golden-009", "golden-10") < 0);
+        assertTrue(ImageCatalog.compareNatural("golden-10a", "golden-10") > 0);
+        assertTrue(ImageCatalog.compareNatural("golden-b", "golden-a") > 0);
+        assertEquals(0, ImageCatalog.compareNatural("golden-10", "golden-10"));
+        assertTrue(ImageCatalog.compareNatural("golden-010", "golden-10") != 0);
+    }
+
+    private static Image image(String id, String name) {
+        OperatingSystem os = OperatingSystem.builder().family(OsFamily.UBUNTU).description("ubuntu").build();
+        return new ImageBuilder().id(id).providerId(id).name(name).operatingSystem(os).status(Image.Status.AVAILABLE).build();
+    }
+}
@@ -0,0 +1,153 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import hudson.model.Label;
+import hudson.model.labels.LabelAtom;
+import shaded.com.google.common.base.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class LabelIndexTest {
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private static final String[] OS = {"centos6", "centos7", "ubuntu14", "ubuntu16", "windows"};
+    private static final String[] SIZES = {"small", "medium", "large", "xlarge"};
+    private static final String[] TOOLS = {"docker", "jdk7", "jdk8", "maven", "gradle", "node", "python"};
+
+    private static final Function<Set<LabelAtom>, Set<LabelAtom>> IDENTITY = new Function<Set<LabelAtom>, Set<LabelAtom>>() {
+        public Set<LabelAtom> apply(Set<LabelAtom> labelSet) {
+            return labelSet;
+        }
+    };
+
+    @Test
+    public void testMatchesFullScan() throws Exception {
+        Random random = new Random(42);
+        List<Set<LabelAtom>> labelSets = templates(random, 40);
+        LabelIndex<Set<LabelAtom>> index = new LabelIndex<Set<LabelAtom>>(labelSets, IDENTITY);
+
+        for (Label label : expressions(random, 500)) {
+            assertSame(label.getExpression(), scan(labelSets, label), index.get(label));
+            // second lookup comes from the memo
+            assertSame(label.getExpression(), scan(labelSets, label), index.get(label));
+        }
+    }
+
+    @Test
+    public void testNegationsAndNull() throws Exception {
+        List<Set<LabelAtom>> labelSets = new ArrayList<Set<LabelAtom>>();
+        labelSets.add(Label.parse("centos7 docker"));
+        labelSets.add(Label.parse("windows"));
+        LabelIndex<Set<LabelAtom>> index = new LabelIndex<Set<LabelAtom>>(labelSets, IDENTITY);
+
+        assertSame(labelSets.get(0), index.get(null));
+        assertSame(labelSets.get(1), index.get(Label.parseExpression("!docker")));
+        assertSame(labelSets.get(0), index.get(Label.parseExpression("!windows")));
+        assertSame(labelSets.get(1), index.get(Label.parseExpression("windows || unknown")));
+        assertNull(index.get(Label.parseExpression("windows && docker")));
+        assertNull(index.get(Label.parseExpression("unknown")));
+    }
+
+    /**
+     * Counts the label set lookups, rather than timing them: the index must never evaluate more label sets than the
+     * full scan, and a memoized label evaluates none.
+     */
+    @Test
+    public void testLookupCost() throws Exception {
+        Random random = new Random(7);
+        final AtomicInteger checks = new AtomicInteger();
+        List<Set<LabelAtom>> labelSets = new ArrayList<Set<LabelAtom>>();
+        for (Set<LabelAtom> labelSet : templates(random, 40)) {
+            labelSets.add(new HashSet<LabelAtom>(labelSet) {
+                @Override
+                public boolean contains(Object o) {
+                    checks.incrementAndGet();
+                    return super.contains(o);
+                }
+            });
+        }
+        LabelIndex<Set<LabelAtom>> index = new LabelIndex<Set<LabelAtom>>(labelSets, IDENTITY);
+
+        int scanned = 0;
+        int indexed = 0;
+        for (Label label : expressions(random, 200)) {
+            checks.set(0);
+            Set<LabelAtom> expected = scan(labelSets, label);
+            int scanChecks = checks.getAndSet(0);
+            assertSame(label.getExpression(), expected, index.get(label));
+            int indexChecks = checks.getAndSet(0);
+            assertTrue(label.getExpression() + ": " + indexChecks + " checks, full scan " + scanChecks, indexChecks <= scanChecks);
+            index.get(label);
+            assertEquals(label.getExpression(), 0, checks.get());
+            scanned += scanChecks;
+            indexed += indexChecks;
+        }
+        assertTrue(indexed + " checks, full scan " + scanned, indexed < scanned);
+    }
+
+    private static Set<LabelAtom> scan(List<Set<LabelAtom>> labelSets, Label label) {
+        for (Set<LabelAtom> labelSet : labelSets) {
+            if (label.matches(labelSet)) {
+                return labelSet;
+            }
+        }
+        return null;
+    }
+
+    private static List<Set<LabelAtom>> templates(Random random, int count) {
+        List<Set<LabelAtom>> labelSets = new ArrayList<Set<LabelAtom>>();
+        for (int i = 0; i < count; i++) {
+            StringBuilder labels = new StringBuilder("template" + i);
+            labels.append(' ').append(pick(random, OS)).append(' ').append(pick(random, SIZES));
+            for (int t = random.nextInt(3); t >= 0; t--) {
+                labels.append(' ').append(pick(random, TOOLS));
+            }
+            labelSets.add(Label.parse(labels.toString()));
+        }
+        return labelSets;
+    }
+
+    private static List<Label> expressions(Random random, int count) throws Exception {
+        List<Label> labels = new ArrayList<Label>();
+        for (int i = 0; i < count; i++) {
+            String expression;
+            switch (random.nextInt(5)) {
+                case 0:
+                    expression = "template" + random.nextInt(50);
+                    break;
+                case 1:
+                    expression = pick(random, OS) + " && " + pick(random, TOOLS);
+                    break;
+                case 2:
+                    expression = pick(random, OS) + " && " + pick(random, SIZES) + " && " + pick(random, TOOLS);
+                    break;
+                case 3:
+                    expression = "(" + pick(random, OS) + " || " + pick(random, OS) + ") && !" + pick(random, TOOLS);
+                    break;
+                default:
+                    expression = "!" + pick(random, OS) + " && !" + pick(random, SIZES);
+                    break;
+            }
+            labels.add(Label.parseExpression(expression));
+        }
+        return labels;
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+}
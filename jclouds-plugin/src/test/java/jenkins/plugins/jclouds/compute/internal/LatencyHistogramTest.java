@@ -0,0 +1,53 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import junit.framework.TestCase;
+
+public class LatencyHistogramTest extends TestCase {
+
+    public void testEmpty() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(0.99));
+    }
+
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10, histogram.getCount());
+        assertEquals(55, histogram.getSum());
+        assertEquals(5, histogram.getPercentile(0.5));
+        assertEquals(10, histogram.getPercentile(0.99));
+    }
+
+    public void testPercentilesWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+        assertWithin(50000, histogram.getPercentile(0.5));
+        assertWithin(95000, histogram.getPercentile(0.95));
+        assertWithin(99000, histogram.getPercentile(0.99));
+    }
+
+    public void testBucketsCoverTheirValues() {
+        for (long value : new long[]{0, 15, 16, 17, 31, 32, 1000, 123456789L}) {
+            int index = LatencyHistogram.index(value);
+            assertTrue(LatencyHistogram.lowerEdge(index) <= value);
+            assertTrue(LatencyHistogram.upperEdge(index) >= value);
+        }
+    }
+
+    public void testNegativeAndHugeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE / 2);
+        assertEquals(0, histogram.getPercentile(0.5));
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(1));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue("expected about " + expected + " but was " + actual, Math.abs(actual - expected) <= expected * 0.07);
+    }
+}
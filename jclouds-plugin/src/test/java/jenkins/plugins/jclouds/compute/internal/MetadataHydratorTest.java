@@ -0,0 +1,104 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.domain.ComputeMetadata;
+import org.jclouds.compute.domain.NodeMetadata;
+
+import junit.framework.TestCase;
+import shaded.com.google.common.base.Function;
+import shaded.com.google.common.base.Predicate;
+import shaded.com.google.common.base.Suppliers;
+import shaded.com.google.common.collect.ImmutableList;
+import shaded.com.google.common.collect.ImmutableSet;
+
+public class MetadataHydratorTest extends TestCase {
+
+    private ComputeService compute;
+    private AtomicInteger loads;
+
+    @Override
+    protected void setUp() throws Exception {
+        // the stub provider keeps its nodes per identity, use a fresh one so other tests don't leak in
+        compute = ContextBuilder.newBuilder("stub").credentials(getName(), "credential").buildView(ComputeServiceContext.class)
+                .getComputeService();
+        loads = new AtomicInteger();
+    }
+
+    public void testOneListingServesAllSlaves() throws Exception {
+        List<NodeMetadata> nodes = ImmutableList.copyOf(compute.createNodesInGroup("hydrate", 3));
+        final String first = nodes.get(0).getId();
+        final String second = nodes.get(1).getId();
+        final MetadataHydrator hydrator = newHydrator(ImmutableSet.of(first, second, "gone"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            List<Future<NodeMetadata>> taken = new ArrayList<Future<NodeMetadata>>();
+            for (final String id : new String[]{first, second, "gone"}) {
+                taken.add(executor.submit(new Callable<NodeMetadata>() {
+                    public NodeMetadata call() {
+                        return hydrator.take(id);
+                    }
+                }));
+            }
+            assertEquals(first, taken.get(0).get().getId());
+            assertEquals(second, taken.get(1).get().getId());
+            // not returned by the listing, the slave asks on its own
+            assertNull(taken.get(2).get());
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, loads.get());
+        assertTrue(hydrator.getHydrationMillis() >= 0);
+    }
+
+    public void testMetadataIsTakenOnce() throws Exception {
+        String id = compute.createNodesInGroup("hydrate", 1).iterator().next().getId();
+        MetadataHydrator hydrator = newHydrator(ImmutableSet.of(id));
+        assertNotNull(hydrator.take(id));
+        assertNull(hydrator.take(id));
+        assertEquals(1, loads.get());
+    }
+
+    public void testFailedLoadFallsBack() {
+        MetadataHydrator hydrator = new MetadataHydrator("test", Suppliers.<Set<String>>ofInstance(ImmutableSet.of("a")),
+                new Function<Set<String>, Iterable<? extends NodeMetadata>>() {
+                    public Iterable<? extends NodeMetadata> apply(Set<String> ids) {
+                        loads.incrementAndGet();
+                        throw new IllegalStateException("provider down");
+                    }
+                });
+        assertNull(hydrator.take("a"));
+        assertNull(hydrator.take("a"));
+        assertEquals(1, loads.get());
+    }
+
+    public void testNoSlavesNoListing() {
+        MetadataHydrator hydrator = newHydrator(ImmutableSet.<String>of());
+        hydrator.hydrate();
+        assertEquals(0, loads.get());
+    }
+
+    private MetadataHydrator newHydrator(Set<String> known) {
+        return new MetadataHydrator("test", Suppliers.ofInstance(known), new Function<Set<String>, Iterable<? extends NodeMetadata>>() {
+            public Iterable<? extends NodeMetadata> apply(final Set<String> ids) {
+                loads.incrementAndGet();
+                return compute.listNodesDetailsMatching(new Predicate<ComputeMetadata>() {
+                    public boolean apply(ComputeMetadata node) {
+                        return ids.contains(node.getId());
+                    }
+                });
+            }
+        });
+    }
+}
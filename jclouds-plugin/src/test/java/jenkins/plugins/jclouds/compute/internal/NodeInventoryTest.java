@@ -0,0 +1,87 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.RunNodesException;
+import org.jclouds.compute.domain.ComputeMetadata;
+import org.jclouds.compute.domain.NodeMetadata;
+
+import junit.framework.TestCase;
+import shaded.com.google.common.base.Supplier;
+import shaded.com.google.common.collect.Iterables;
+
+public class NodeInventoryTest extends TestCase {
+
+    private ComputeService compute;
+    private AtomicInteger listCalls;
+
+    @Override
+    protected void setUp() throws Exception {
+        // the stub provider keeps its nodes per identity, use a fresh one so other tests don't leak in
+        compute = ContextBuilder.newBuilder("stub").credentials(getName(), "credential").buildView(ComputeServiceContext.class)
+                .getComputeService();
+        listCalls = new AtomicInteger();
+    }
+
+    public void testReadsWithinStalenessBoundShareOneListCall() throws RunNodesException {
+        compute.createNodesInGroup("inventory", 5);
+        NodeInventory inventory = newInventory(60000);
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(5, inventory.getNodes().size());
+        }
+        assertEquals(1, listCalls.get());
+    }
+
+    public void testStaleSnapshotIsReloaded() throws RunNodesException {
+        compute.createNodesInGroup("stale", 2);
+        NodeInventory inventory = newInventory(0);
+
+        inventory.getNodes();
+        inventory.getNodes();
+        assertEquals(2, listCalls.get());
+    }
+
+    public void testDeltasAreVisibleWithoutListCall() throws RunNodesException {
+        NodeInventory inventory = newInventory(60000);
+        assertEquals(0, inventory.getNodes().size());
+
+        NodeMetadata created = Iterables.getOnlyElement(compute.createNodesInGroup("delta", 1));
+        inventory.nodeChanged(created);
+        assertEquals(created, inventory.getNode(created.getId()));
+
+        inventory.nodeRemoved(created.getId());
+        assertNull(inventory.getNode(created.getId()));
+        assertEquals(1, listCalls.get());
+    }
+
+    public void testForcedRefresh() throws RunNodesException {
+        NodeInventory inventory = newInventory(60000);
+        assertEquals(0, inventory.getNodes().size());
+
+        compute.createNodesInGroup("forced", 3);
+        assertEquals(0, inventory.getNodes().size());
+
+        inventory.refresh();
+        assertEquals(3, inventory.getNodes().size());
+        assertEquals(2, listCalls.get());
+    }
+
+    private NodeInventory newInventory(long stalenessMillis) {
+        return new NodeInventory(new Supplier<Set<? extends ComputeMetadata>>() {
+            public Set<? extends ComputeMetadata> get() {
+                listCalls.incrementAndGet();
+                return compute.listNodes();
+            }
+        }, stalenessMillis);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        compute.getContext().close();
+    }
+}
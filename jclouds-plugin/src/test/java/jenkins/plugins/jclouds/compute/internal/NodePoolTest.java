@@ -0,0 +1,134 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.RunNodesException;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.compute.domain.NodeMetadataBuilder;
+
+import junit.framework.TestCase;
+
+import static shaded.com.google.common.collect.Iterables.getOnlyElement;
+
+public class NodePoolTest extends TestCase {
+
+    private ComputeService compute;
+    private ExecutorService executor;
+
+    @Override
+    protected void setUp() throws Exception {
+        compute = ContextBuilder.newBuilder("stub").credentials(getName(), "credential").buildView(ComputeServiceContext.class)
+                .getComputeService();
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    public void testPooledNodeIsHandedOutWithoutWaitingForCreate() throws Exception {
+        NodePool pool = new NodePool();
+        refill(pool, 2).get(30, TimeUnit.SECONDS);
+        assertEquals(2, pool.size());
+
+        NodeMetadata node = pool.take();
+
+        assertNotNull(node);
+        assertEquals(NodeMetadata.Status.RUNNING, node.getStatus());
+        assertEquals(1, pool.size());
+        assertEquals(0, pool.getPending());
+        // handed out from the pool, not created on demand
+        assertEquals(2, compute.listNodes().size());
+    }
+
+    public void testConcurrentRefillsNeverOverfill() throws Exception {
+        NodePool pool = new NodePool();
+        List<Future<?>> refills = new ArrayList<Future<?>>();
+        for (int i = 0; i < 10; i++) {
+            refills.add(refill(pool, 3));
+        }
+        for (Future<?> refill : refills) {
+            refill.get(30, TimeUnit.SECONDS);
+        }
+        assertEquals(3, pool.size());
+        assertEquals(0, pool.getPending());
+        assertEquals(3, compute.listNodes().size());
+    }
+
+    public void testTrimAndDrain() throws Exception {
+        NodePool pool = new NodePool();
+        refill(pool, 4).get(30, TimeUnit.SECONDS);
+
+        assertEquals(1, pool.trim(3).size());
+        assertEquals(3, pool.size());
+        assertEquals(3, pool.drain().size());
+        assertNull(pool.take());
+    }
+
+    public void testBootingNodeIsTakenOnlyOnceItPhonedHome() throws Exception {
+        NodePool pool = new NodePool();
+        NodeMetadata node = NodeMetadataBuilder.fromNodeMetadata(getOnlyElement(compute.createNodesInGroup("pool", 1)))
+                .hostname("pool-1").build();
+        pool.addBooting(node);
+
+        assertEquals(0, pool.claim(1));
+        assertNull(pool.take());
+        assertFalse(pool.phonedHome("pool-2"));
+        assertTrue(pool.phonedHome("pool-1"));
+        assertEquals(0, pool.getBooting());
+        assertEquals(node.getId(), pool.take().getId());
+    }
+
+    public void testBootingNodeExpiresWithoutPhoneHome() throws Exception {
+        NodePool pool = new NodePool();
+        pool.addBooting(getOnlyElement(compute.createNodesInGroup("pool", 1)));
+
+        assertTrue(pool.expireBooting(TimeUnit.MINUTES.toMillis(30)).isEmpty());
+        assertEquals(1, pool.expireBooting(-1).size());
+        assertEquals(0, pool.getBooting());
+        assertEquals(1, pool.claim(1));
+    }
+
+    public void testTakenNodeIsHeldUntilForgottenOrGivenBack() throws Exception {
+        NodePool pool = new NodePool();
+        refill(pool, 1).get(30, TimeUnit.SECONDS);
+        NodeMetadata node = pool.take();
+        long handOut = TimeUnit.MINUTES.toMillis(60);
+
+        assertTrue(pool.isHeld(node.getId(), handOut));
+        assertFalse(pool.isHeld(node.getId(), -1));
+        pool.add(node);
+        assertTrue(pool.isHeld(pool.take().getId(), handOut));
+        pool.forget(node.getId());
+        assertFalse(pool.isHeld(node.getId(), handOut));
+    }
+
+    private Future<?> refill(final NodePool pool, int target) {
+        final int claimed = pool.claim(target);
+        return executor.submit(new Callable<Void>() {
+            public Void call() throws RunNodesException {
+                try {
+                    if (claimed > 0) {
+                        for (NodeMetadata node : compute.createNodesInGroup("pool", claimed)) {
+                            pool.add(node);
+                        }
+                    }
+                } finally {
+                    pool.release(claimed);
+                }
+                return null;
+            }
+        });
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        executor.shutdownNow();
+        compute.getContext().close();
+    }
+}
@@ -0,0 +1,50 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.io.File;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+public class PoolJournalTest extends TestCase {
+
+    public void testNodesSurviveSaveAndLoad() throws IOException {
+        File file = File.createTempFile("pool", ".txt");
+        try {
+            PoolJournal journal = new PoolJournal("cloud", file);
+            journal.add("small", "zone/1");
+            journal.add("large", "zone/2");
+            journal.add("small", "zone/3");
+            journal.remove("zone/3");
+            journal.save();
+
+            PoolJournal loaded = new PoolJournal("cloud", file);
+            loaded.load();
+            assertEquals(2, loaded.getNodes().size());
+            assertEquals("small", loaded.getNodes().get("zone/1"));
+            assertEquals("large", loaded.getNodes().get("zone/2"));
+
+            PoolJournal orphaned = PoolJournal.read(file);
+            assertEquals("cloud", orphaned.getCloudName());
+            assertEquals(loaded.getNodes(), orphaned.getNodes());
+        } finally {
+            file.delete();
+        }
+    }
+
+    public void testRefusesJournalOfOtherCloud() throws IOException {
+        File file = File.createTempFile("pool", ".txt");
+        try {
+            PoolJournal journal = new PoolJournal("cloud", file);
+            journal.add("small", "zone/1");
+            journal.save();
+
+            try {
+                new PoolJournal("other", file).load();
+                fail("loaded the journal of another cloud");
+            } catch (IOException expected) {
+            }
+        } finally {
+            file.delete();
+        }
+    }
+}
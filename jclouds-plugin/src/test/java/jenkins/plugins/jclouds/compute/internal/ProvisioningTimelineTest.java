@@ -0,0 +1,39 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.List;
+
+import jenkins.plugins.jclouds.compute.internal.ProvisioningTimeline.Event;
+import junit.framework.TestCase;
+
+public class ProvisioningTimelineTest extends TestCase {
+
+    public void testEntriesInEventOrderWithElapsedTime() {
+        ProvisioningTimeline timeline = new ProvisioningTimeline();
+        timeline.recordAt(Event.ONLINE, 9000);
+        timeline.recordAt(Event.REQUESTED, 1000);
+        timeline.recordAt(Event.API_ACCEPTED, 4000);
+
+        List<ProvisioningTimeline.Entry> entries = timeline.getEntries();
+        assertEquals(3, entries.size());
+        assertEquals(Event.REQUESTED, entries.get(0).getEvent());
+        assertEquals(0, entries.get(0).getElapsedMillis());
+        assertEquals(Event.API_ACCEPTED, entries.get(1).getEvent());
+        assertEquals(3000, entries.get(1).getElapsedMillis());
+        assertEquals(Event.ONLINE, entries.get(2).getEvent());
+        assertEquals(8000, entries.get(2).getElapsedMillis());
+    }
+
+    public void testFirstOccurrenceIsKept() {
+        ProvisioningTimeline timeline = new ProvisioningTimeline();
+        timeline.recordAt(Event.SSH_CONNECTED, 5000);
+        // a relaunch connects again
+        timeline.recordAt(Event.SSH_CONNECTED, 7000);
+        assertEquals(5000, timeline.getTime(Event.SSH_CONNECTED));
+        assertEquals(0, timeline.getTime(Event.PHONED_HOME));
+    }
+
+    public void testKeys() {
+        assertEquals("api_accepted", Event.API_ACCEPTED.getKey());
+        assertEquals("ip_assigned", Event.IP_ASSIGNED.getKey());
+    }
+}
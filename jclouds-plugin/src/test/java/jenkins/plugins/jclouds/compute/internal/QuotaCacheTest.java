@@ -0,0 +1,102 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+import shaded.com.google.common.base.Function;
+import shaded.com.google.common.base.Supplier;
+import shaded.com.google.common.collect.ImmutableMap;
+
+import static jenkins.plugins.jclouds.compute.internal.QuotaCache.INSTANCE_KEY;
+import static jenkins.plugins.jclouds.compute.internal.QuotaCache.RAM_KEY;
+import static jenkins.plugins.jclouds.compute.internal.QuotaCache.VCPU_KEY;
+
+public class QuotaCacheTest extends TestCase {
+
+    private final AtomicInteger quotaLoads = new AtomicInteger();
+    private final AtomicInteger usageLoads = new AtomicInteger();
+    private final AtomicInteger flavorLoads = new AtomicInteger();
+    // what the provider reports as used
+    private volatile int usedInstances = 2;
+
+    public void testQuotaAndUsageAreReloadedOnlyOnceExpired() throws InterruptedException {
+        QuotaCache cache = newCache(60000);
+        cache.getQuota();
+        cache.getQuota();
+        cache.getUsage();
+        cache.getUsage();
+        assertEquals(1, quotaLoads.get());
+        assertEquals(1, usageLoads.get());
+
+        QuotaCache expiring = newCache(1);
+        expiring.getQuota();
+        expiring.getUsage();
+        Thread.sleep(5);
+        expiring.getQuota();
+        expiring.getUsage();
+        assertEquals(3, quotaLoads.get());
+        assertEquals(3, usageLoads.get());
+    }
+
+    public void testInvalidateReloads() {
+        QuotaCache cache = newCache(60000);
+        cache.getQuota();
+        assertEquals(2, cache.getUsage().get(INSTANCE_KEY).intValue());
+
+        usedInstances = 5;
+        assertEquals(2, cache.getUsage().get(INSTANCE_KEY).intValue());
+        cache.invalidate();
+        cache.getQuota();
+        assertEquals(5, cache.getUsage().get(INSTANCE_KEY).intValue());
+        assertEquals(2, quotaLoads.get());
+        assertEquals(2, usageLoads.get());
+    }
+
+    public void testDeltasApplyUntilTheNextReload() {
+        QuotaCache cache = newCache(60000);
+        cache.getUsage();
+
+        cache.nodeCreated(2, 1024);
+        cache.nodeCreated(2, 1024);
+        cache.nodeDestroyed(1, 512);
+        Map<String, Integer> usage = cache.getUsage();
+        assertEquals(3, usage.get(INSTANCE_KEY).intValue());
+        assertEquals(7, usage.get(VCPU_KEY).intValue());
+        assertEquals(4096 + 1536, usage.get(RAM_KEY).intValue());
+
+        // the provider now reports the nodes we created, the deltas must not count them twice
+        usedInstances = 3;
+        cache.invalidate();
+        assertEquals(3, cache.getUsage().get(INSTANCE_KEY).intValue());
+        assertEquals(4, cache.getUsage().get(VCPU_KEY).intValue());
+    }
+
+    public void testFlavorsAreLoadedOnce() {
+        QuotaCache cache = newCache(60000);
+        assertEquals(2, cache.getFlavor("m1.small").get(VCPU_KEY).intValue());
+        assertEquals(2, cache.getFlavor("m1.small").get(VCPU_KEY).intValue());
+        cache.invalidate();
+        cache.getFlavor("m1.small");
+        assertEquals(1, flavorLoads.get());
+    }
+
+    private QuotaCache newCache(long ttlMillis) {
+        return new QuotaCache(new Supplier<Map<String, Integer>>() {
+            public Map<String, Integer> get() {
+                quotaLoads.incrementAndGet();
+                return ImmutableMap.of(VCPU_KEY, 20, RAM_KEY, 40960, INSTANCE_KEY, 10);
+            }
+        }, new Supplier<Map<String, Integer>>() {
+            public Map<String, Integer> get() {
+                usageLoads.incrementAndGet();
+                return ImmutableMap.of(VCPU_KEY, 4, RAM_KEY, 4096, INSTANCE_KEY, usedInstances);
+            }
+        }, new Function<String, Map<String, Integer>>() {
+            public Map<String, Integer> apply(String flavorId) {
+                flavorLoads.incrementAndGet();
+                return ImmutableMap.of(VCPU_KEY, 2, RAM_KEY, 1024);
+            }
+        }, ttlMillis);
+    }
+}
@@ -0,0 +1,91 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+import shaded.com.google.common.base.Function;
+import shaded.com.google.common.base.Supplier;
+import shaded.com.google.common.base.Suppliers;
+import shaded.com.google.common.collect.ImmutableMap;
+
+import static jenkins.plugins.jclouds.compute.internal.QuotaCache.INSTANCE_KEY;
+import static jenkins.plugins.jclouds.compute.internal.QuotaCache.RAM_KEY;
+import static jenkins.plugins.jclouds.compute.internal.QuotaCache.VCPU_KEY;
+
+public class QuotaLedgerTest extends TestCase {
+
+    private QuotaCache quotaCache;
+    private QuotaLedger ledger;
+
+    @Override
+    protected void setUp() throws Exception {
+        Supplier<Map<String, Integer>> quota = Suppliers.<Map<String, Integer>>ofInstance(
+                ImmutableMap.of(VCPU_KEY, 20, RAM_KEY, 40960, INSTANCE_KEY, 10));
+        Supplier<Map<String, Integer>> usage = Suppliers.<Map<String, Integer>>ofInstance(
+                ImmutableMap.of(VCPU_KEY, 4, RAM_KEY, 8192, INSTANCE_KEY, 2));
+        quotaCache = new QuotaCache(quota, usage, new Function<String, Map<String, Integer>>() {
+            public Map<String, Integer> apply(String flavorId) {
+                throw new UnsupportedOperationException();
+            }
+        }, 60000);
+        ledger = new QuotaLedger(quotaCache);
+    }
+
+    public void testConcurrentReservationsNeverOverCommit() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<QuotaLedger.Reservation>> futures = new ArrayList<Future<QuotaLedger.Reservation>>();
+            for (int i = 0; i < 50; i++) {
+                futures.add(executor.submit(new Callable<QuotaLedger.Reservation>() {
+                    public QuotaLedger.Reservation call() {
+                        return ledger.tryReserve(2, 1024);
+                    }
+                }));
+            }
+            int granted = 0;
+            for (Future<QuotaLedger.Reservation> future : futures) {
+                if (future.get() != null) {
+                    granted++;
+                }
+            }
+            // 8 instances left, 16 vcpu left
+            assertEquals(8, granted);
+            assertEquals(8, ledger.getReservedInstances());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public void testCommitMovesReservationIntoUsage() {
+        QuotaLedger.Reservation reservation = ledger.tryReserve(2, 1024);
+        reservation.commit();
+        reservation.commit();
+
+        assertEquals(0, ledger.getReservedVcpu());
+        assertEquals(6, quotaCache.getUsage().get(VCPU_KEY).intValue());
+        assertEquals(3, quotaCache.getUsage().get(INSTANCE_KEY).intValue());
+    }
+
+    public void testReleaseGivesResourcesBack() {
+        QuotaLedger.Reservation reservation = ledger.tryReserve(16, 1024);
+        assertNull(ledger.tryReserve(2, 1024));
+
+        reservation.release();
+        assertEquals(0, ledger.getReservedVcpu());
+        assertEquals(4, quotaCache.getUsage().get(VCPU_KEY).intValue());
+        assertNotNull(ledger.tryReserve(2, 1024));
+    }
+
+    public void testExpireDropsLostReservations() throws InterruptedException {
+        ledger.tryReserve(2, 1024);
+        Thread.sleep(5);
+        ledger.expire(1);
+        assertEquals(0, ledger.getReservedInstances());
+    }
+}
@@ -0,0 +1,53 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+public class RateLimiterTest extends TestCase {
+
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    public void testBurstThenRate() {
+        RateLimiter limiter = new RateLimiter(2, 3);
+        long now = System.nanoTime();
+        assertEquals(0, limiter.reserve(1, now));
+        assertEquals(0, limiter.reserve(2, now));
+        // the bucket is empty, the next permit comes after half a second
+        assertEquals(SECOND / 2, limiter.reserve(1, now));
+        assertEquals(SECOND, limiter.reserve(1, now));
+    }
+
+    public void testRefillIsCappedAtBurst() {
+        RateLimiter limiter = new RateLimiter(1, 2);
+        long now = System.nanoTime();
+        limiter.reserve(2, now);
+        long later = now + 60 * SECOND;
+        assertEquals(0, limiter.reserve(2, later));
+        assertEquals(SECOND, limiter.reserve(1, later));
+    }
+
+    public void testBatchWaitsForAllPermits() {
+        RateLimiter limiter = new RateLimiter(10, 1);
+        long now = System.nanoTime();
+        assertEquals(4 * SECOND / 10, limiter.reserve(5, now));
+    }
+
+    public void testUnlimited() {
+        RateLimiter limiter = new RateLimiter(0, 1);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(0, limiter.reserve(1, System.nanoTime()));
+        }
+    }
+
+    public void testInterruptEndsWaitWithException() {
+        RateLimiter limiter = new RateLimiter(1, 1);
+        limiter.reserve(1, System.nanoTime());
+        Thread.currentThread().interrupt();
+        try {
+            limiter.acquire(1);
+            fail("acquired while interrupted");
+        } catch (InterruptedException expected) {
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package jenkins.plugins.jclouds.compute.internal;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.RunNodesException;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.jclouds.logging.Logger;
+import org.jclouds.rest.AuthorizationException;
+
+import junit.framework.TestCase;
+import shaded.com.google.common.base.Supplier;
+import shaded.com.google.common.base.Throwables;
+import shaded.com.google.common.collect.Iterables;
+
+public class RetrySupplierOnExceptionTest extends TestCase {
+
+    private ComputeService compute;
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Override
+    protected void setUp() throws Exception {
+        compute = ContextBuilder.newBuilder("stub").credentials(getName(), "credential").buildView(ComputeServiceContext.class)
+                .getComputeService();
+    }
+
+    /**
+     * Creates stub nodes, failing the first {@code failures} calls with the given exception.
+     */
+    private Supplier<NodeMetadata> failing(final int failures, final RuntimeException failure) {
+        return new Supplier<NodeMetadata>() {
+            public NodeMetadata get() {
+                if (calls.incrementAndGet() <= failures) {
+                    throw failure;
+                }
+                try {
+                    return Iterables.getOnlyElement(compute.createNodesInGroup("retry", 1));
+                } catch (RunNodesException e) {
+                    throw Throwables.propagate(e);
+                }
+            }
+        };
+    }
+
+    public void testTransientFailuresAreRetried() throws Exception {
+        RetrySupplierOnException retry = new RetrySupplierOnException(failing(3, new IllegalStateException("overloaded")), Logger.NULL, 5, 1, 10);
+        assertNotNull(retry.call());
+        assertEquals(4, calls.get());
+    }
+
+    public void testGivesUpAfterMaxAttempts() throws Exception {
+        RetrySupplierOnException retry = new RetrySupplierOnException(failing(10, new IllegalStateException("overloaded")), Logger.NULL, 5, 1, 10);
+        assertNull(retry.call());
+        assertEquals(5, calls.get());
+    }
+
+    public void testQuotaAndAuthorizationFailFast() throws Exception {
+        RuntimeException[] failures = {new QuotaExceededException("quota"), new AuthorizationException("denied"),
+                new RuntimeException(new AuthorizationException("wrapped")), new CircuitOpenException("open")};
+        for (RuntimeException failure : failures) {
+            calls.set(0);
+            try {
+                new RetrySupplierOnException(failing(10, failure), Logger.NULL, 5, 1, 10).call();
+                fail("expected " + failure);
+            } catch (RuntimeException e) {
+                assertSame(failure, e);
+            }
+            assertEquals(1, calls.get());
+        }
+    }
+
+    public void testBackoffIsBoundedFullJitter() {
+        RetrySupplierOnException retry = new RetrySupplierOnException(failing(0, null), Logger.NULL, 5, 100, 1000);
+        for (int attempt = 1; attempt < 40; attempt++) {
+            long delay = retry.delayMillis(attempt);
+            assertTrue(delay >= 0);
+            assertTrue(delay <= Math.min(1000, 100L << Math.min(attempt, 30)));
+        }
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        compute.getContext().close();
+    }
+}
@@ -0,0 +1,73 @@
+package jenkins.plugins.jclouds.internal;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import jenkins.plugins.jclouds.compute.internal.LatencyHistogram;
+import junit.framework.TestCase;
+
+public class MetricsTest extends TestCase {
+
+    public void testCounterSeriesPerLabelValues() throws Exception {
+        Metrics.Family family = new Metrics.Family("test_total", "counter", "Test counter.", "cloud");
+        family.inc("a");
+        family.add(2, "a");
+        family.inc("b");
+        assertEquals(3, family.get("a"));
+        assertEquals(1, family.get("b"));
+        assertEquals(0, family.get("c"));
+
+        StringWriter out = new StringWriter();
+        family.write(out);
+        String text = out.toString();
+        assertTrue(text.startsWith("# HELP test_total Test counter.\n# TYPE test_total counter\n"));
+        assertTrue(text.contains("test_total{cloud=\"a\"} 3\n"));
+        assertTrue(text.contains("test_total{cloud=\"b\"} 1\n"));
+    }
+
+    public void testLabelValuesAreEscaped() throws Exception {
+        Metrics.Family family = new Metrics.Family("test", "gauge", "Test gauge.", "name");
+        family.set(1, "say \"hi\"\\\n");
+        StringWriter out = new StringWriter();
+        family.write(out);
+        assertTrue(out.toString().contains("test{name=\"say \\\"hi\\\"\\\\\\n\"} 1\n"));
+    }
+
+    public void testSetAllDropsStaleSeries() {
+        Metrics.Family family = new Metrics.Family("test", "gauge", "Test gauge.", "cloud");
+        family.set(5, "gone");
+        family.setAll(Collections.<List<String>, Long>singletonMap(Arrays.asList("kept"), 2L));
+        assertEquals(0, family.get("gone"));
+        assertEquals(2, family.get("kept"));
+    }
+
+    public void testWrongLabelCountIsRejected() {
+        Metrics.Family family = new Metrics.Family("test", "counter", "Test counter.", "cloud", "template");
+        try {
+            family.inc("a");
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    public void testHistogramBucketsAreCumulative() throws Exception {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(50);
+        histogram.record(2000);
+        histogram.record(3600000);
+        Map<List<String>, LatencyHistogram> series = Collections.singletonMap(Arrays.asList("a"), histogram);
+        StringWriter out = new StringWriter();
+        Metrics.writeHistogram(out, "test_seconds", "Test histogram.", Arrays.asList("cloud"), series);
+        String text = out.toString();
+        assertTrue(text.contains("# TYPE test_seconds histogram\n"));
+        assertTrue(text.contains("test_seconds_bucket{cloud=\"a\",le=\"0.1\"} 1\n"));
+        assertTrue(text.contains("test_seconds_bucket{cloud=\"a\",le=\"2.5\"} 2\n"));
+        assertTrue(text.contains("test_seconds_bucket{cloud=\"a\",le=\"1800\"} 2\n"));
+        assertTrue(text.contains("test_seconds_bucket{cloud=\"a\",le=\"+Inf\"} 3\n"));
+        assertTrue(text.contains("test_seconds_count{cloud=\"a\"} 3\n"));
+        assertTrue(text.contains("test_seconds_sum{cloud=\"a\"} 3602.05\n"));
+    }
+}
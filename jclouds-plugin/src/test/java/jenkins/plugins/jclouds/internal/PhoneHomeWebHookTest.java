@@ -0,0 +1,89 @@
+package jenkins.plugins.jclouds.internal;
+
+import java.net.URL;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.jclouds.ContextBuilder;
+import org.jclouds.compute.ComputeService;
+import org.jclouds.compute.ComputeServiceContext;
+import org.jclouds.compute.domain.NodeMetadata;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.jvnet.hudson.test.JenkinsRule;
+
+import com.gargoylesoftware.htmlunit.HttpMethod;
+import com.gargoylesoftware.htmlunit.WebRequest;
+
+import jenkins.plugins.jclouds.compute.JCloudsComputer;
+import jenkins.plugins.jclouds.compute.JCloudsSlave;
+import shaded.com.google.common.collect.Iterables;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+public class PhoneHomeWebHookTest {
+    @Rule
+    public JenkinsRule j = new JenkinsRule();
+
+    private ComputeService compute;
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        compute = ContextBuilder.newBuilder("stub").credentials("phonehome", "credential").buildView(ComputeServiceContext.class)
+                .getComputeService();
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @Test
+    public void testPhoneHomeReleasesWaiterImmediately() throws Exception {
+        NodeMetadata node = Iterables.getOnlyElement(compute.createNodesInGroup("phonehome", 1));
+        final JCloudsSlave slave = new JCloudsSlave("stub-cloud", "/jenkins", node, "phonehome", "", "1", false, 30, "",
+                true, 10, null);
+        j.jenkins.addNode(slave);
+
+        Future<Void> released = executor.submit(new Callable<Void>() {
+            public Void call() throws InterruptedException {
+                slave.waitForPhoneHome(null);
+                return null;
+            }
+        });
+        Thread.sleep(500);
+        assertFalse(released.isDone());
+
+        WebRequest post = new WebRequest(new URL(j.getURL(), PhoneHomeWebHook.URLNAME + "/?hostname=" + node.getHostname()),
+                HttpMethod.POST);
+        j.createWebClient().getPage(post);
+
+        // well within the 10 minute phone home timeout, so only the POST can have released it
+        released.get(60, TimeUnit.SECONDS);
+        assertFalse(slave.isWaitPhoneHome());
+    }
+
+    @Test
+    public void testHostnameIndexFollowsSlaves() throws Exception {
+        NodeMetadata node = Iterables.getOnlyElement(compute.createNodesInGroup("indexed", 1));
+        JCloudsSlave slave = new JCloudsSlave("stub-cloud", "/jenkins", node, "indexed", "", "1", false, 30, "",
+                false, 10, null);
+        assertNull(JCloudsComputer.getByHostname(node.getHostname()));
+
+        j.jenkins.addNode(slave);
+        assertSame(slave, JCloudsComputer.getByHostname(node.getHostname()).getNode());
+
+        j.jenkins.removeNode(slave);
+        assertNull(JCloudsComputer.getByHostname(node.getHostname()));
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        compute.getContext().close();
+    }
+}
@@ -0,0 +1,28 @@
+package jenkins.plugins.jclouds.internal;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.jclouds.compute.ComputeServiceContext;
+
+import junit.framework.TestCase;
+
+public class ProviderCatalogTest extends TestCase {
+
+    public void testPrefixLookup() {
+        ProviderCatalog catalog = new ProviderCatalog(new String[]{"aws-ec2", "cloudstack", "openstack-nova", "openstack-nova-ec2", "stub"});
+        assertEquals(Arrays.asList("openstack-nova", "openstack-nova-ec2"), catalog.withPrefix("openstack"));
+        assertEquals(Arrays.asList("aws-ec2"), catalog.withPrefix("a"));
+        assertEquals(Arrays.asList("stub"), catalog.withPrefix("stub"));
+        assertEquals(Collections.emptyList(), catalog.withPrefix("zzz"));
+        assertEquals(Collections.emptyList(), catalog.withPrefix("b"));
+        assertEquals(5, catalog.withPrefix("").size());
+    }
+
+    public void testCatalogIsScannedOnce() {
+        ProviderCatalog catalog = ProviderCatalog.of(ComputeServiceContext.class);
+        assertSame(catalog, ProviderCatalog.of(ComputeServiceContext.class));
+        assertTrue(catalog.getIds().contains("stub"));
+        assertTrue(catalog.withPrefix("stu").contains("stub"));
+    }
+}